@@ -0,0 +1,96 @@
+package application.benchmarks;
+
+import application.BPTree;
+import application.FoodItem;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks BPTree.insert and BPTree.rangeSearch over the calories of synthetic catalogs, which
+ * hold many duplicate keys like the indexes of FoodData.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class BPTreeBenchmark {
+
+  private static final int KEY_POOL_SIZE = 1024; // keys searched and inserted, in turn
+
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int rows;
+
+  @Param({"3", "64"})
+  public int branchingFactor;
+
+  private Double[] keys; // the keys of the catalog, by row id
+  private Double[] keyPool; // keys drawn from the catalog
+  private int next; // index of the next key of the pool
+  private BPTree<Double, Integer> tree;
+
+  @Setup(Level.Trial)
+  public void generateKeys() {
+    List<FoodItem> foodItems = Catalogs.generate(rows, Catalogs.SEED);
+    keys = new Double[rows];
+    for (int row = 0; row < rows; row++) {
+      keys[row] = foodItems.get(row).getNutrientValue("calories");
+    }
+    Random random = new Random(Catalogs.SEED);
+    keyPool = new Double[KEY_POOL_SIZE];
+    for (int i = 0; i < KEY_POOL_SIZE; i++) {
+      keyPool[i] = keys[random.nextInt(rows)];
+    }
+  }
+
+  /**
+   * Rebuilds the tree before every iteration so that insert always starts from the same tree.
+   */
+  @Setup(Level.Iteration)
+  public void buildTree() {
+    tree = new BPTree<>(branchingFactor);
+    for (int row = 0; row < rows; row++) {
+      tree.insert(keys[row], row);
+    }
+    next = 0;
+  }
+
+  private Double nextKey() {
+    Double key = keyPool[next];
+    next = (next + 1) % KEY_POOL_SIZE;
+    return key;
+  }
+
+  @Benchmark
+  public void insert() {
+    tree.insert(nextKey(), rows);
+  }
+
+  /**
+   * The comparator of rangeSearch, kept apart so that insert is not run once per comparator.
+   */
+  @State(Scope.Thread)
+  public static class Search {
+    @Param({"<=", ">=", "=="})
+    public String comparator;
+  }
+
+  @Benchmark
+  public List<Integer> rangeSearch(Search search) {
+    return tree.rangeSearch(nextKey(), search.comparator);
+  }
+}
@@ -0,0 +1,54 @@
+package application.benchmarks;
+
+import application.CatalogGenerator;
+import application.FoodItem;
+import application.FoodItemFormat;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the synthetic catalogs of the benchmarks with the default settings of the
+ * CatalogGenerator: label-like rounded values, so every nutrient index holds many duplicate keys,
+ * and names of which a share repeat. The same seed always gives the same catalog.
+ */
+final class Catalogs {
+
+  static final long SEED = 20181210L; // seed of every benchmark catalog
+
+  private Catalogs() {}
+
+  /**
+   * Generates a catalog.
+   *
+   * @param rows number of food items
+   * @param seed the seed
+   * @return the food items
+   */
+  static List<FoodItem> generate(int rows, long seed) {
+    List<FoodItem> foodItems = new ArrayList<>(rows);
+    new CatalogGenerator(seed).generate(rows, foodItems::add);
+    return foodItems;
+  }
+
+  /**
+   * Writes a catalog to a temporary file in the food data file format.
+   *
+   * @param foodItems the food items
+   * @return path of the file, deleted when the JVM exits
+   */
+  static Path writeTempFile(List<FoodItem> foodItems) throws IOException {
+    Path file = Files.createTempFile("catalog", ".csv");
+    file.toFile().deleteOnExit();
+    try (Writer writer = Files.newBufferedWriter(file)) {
+      for (FoodItem foodItem : foodItems) {
+        FoodItemFormat.appendFileRecord(writer, foodItem);
+        writer.write('\n');
+      }
+    }
+    return file;
+  }
+}
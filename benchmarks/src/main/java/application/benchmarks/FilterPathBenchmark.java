@@ -0,0 +1,79 @@
+package application.benchmarks;
+
+import application.ColumnScan;
+import application.FoodData;
+import application.FoodQuery;
+import application.Nutrient;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the index path and the scan path of FoodData over calories rules of increasing
+ * selectivity, the measurements the cost ratio of FoodData.choosePath comes from. Both paths are
+ * checked to give the same rows, and the path the planner picks is printed at setup. The forks
+ * run with the Vector API; pass -jvmArgsAppend -Dfoodquery.scalarScan=true to measure the scalar
+ * scan instead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class FilterPathBenchmark {
+
+  @Param({"200000"})
+  public int rows;
+
+  // share of the catalog matched by the rule
+  @Param({"0.001", "0.01", "0.05", "0.1", "0.25", "0.5", "0.9"})
+  public double selectivity;
+
+  @Param({"INDEX", "SCAN"})
+  public FoodData.AccessPath path;
+
+  private FoodData foodData;
+  private FoodQuery query;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    Path catalogFile = Catalogs.writeTempFile(Catalogs.generate(rows, Catalogs.SEED));
+    foodData = FoodData.fromFile(catalogFile.toString());
+    Files.delete(catalogFile);
+
+    // the threshold is at the percentile of the calories column
+    double[] calories = Arrays.copyOf(foodData.getNutrientColumn(Nutrient.CALORIES), rows);
+    Arrays.sort(calories);
+    double threshold = calories[(int) (selectivity * (rows - 1))];
+    query = new FoodQuery(null, Collections.singletonList("calories <= " + threshold));
+
+    BitSet byIndex = foodData.executeQuery(query, FoodData.AccessPath.INDEX);
+    if (!byIndex.equals(foodData.executeQuery(query, FoodData.AccessPath.SCAN))) {
+      throw new IllegalStateException("Access paths disagree on " + query);
+    }
+    System.out.printf("%n%d of %d rows matched, planner picks %s, vectorized scan %b%n",
+        byIndex.cardinality(), rows, foodData.choosePath(query), ColumnScan.isVectorized());
+  }
+
+  @Benchmark
+  public BitSet executeQuery() {
+    return foodData.executeQuery(query, path);
+  }
+}
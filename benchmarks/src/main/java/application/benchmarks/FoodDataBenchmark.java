@@ -0,0 +1,131 @@
+package application.benchmarks;
+
+import application.FoodData;
+import application.FoodItem;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks loading, filtering and saving the food data of synthetic catalogs. The filters
+ * cycle through a pool of queries much larger than the query cache, so they measure query
+ * evaluation rather than cache hits.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class FoodDataBenchmark {
+
+  private static final int QUERY_POOL_SIZE = 1024; // queries run in turn
+  private static final String[] NUTRIENTS = {"calories", "fat", "carbohydrate", "fiber",
+      "protein"};
+  private static final String[] COMPARATORS = {"<=", ">="};
+
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int rows;
+
+  private Path catalogFile; // the catalog in the food data file format
+  private Path saveFile; // where saveFoodItems writes to
+  private FoodData foodData;
+  private List<FoodItem> foodItems;
+  private String[] names; // name substrings searched in turn
+  private int next; // index of the next query of the pools
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    foodItems = Catalogs.generate(rows, Catalogs.SEED);
+    catalogFile = Catalogs.writeTempFile(foodItems);
+    saveFile = Files.createTempFile("saved", ".csv");
+    foodData = FoodData.fromFile(catalogFile.toString());
+
+    Random random = new Random(Catalogs.SEED);
+    names = new String[QUERY_POOL_SIZE];
+    for (int i = 0; i < QUERY_POOL_SIZE; i++) {
+      // either the first word of a name, found in many names, or a whole name
+      String name = foodItems.get(random.nextInt(rows)).getName();
+      names[i] = random.nextBoolean() ? name.substring(0, name.indexOf('_')) : name;
+    }
+  }
+
+  /**
+   * The nutrient rule lists of filterByNutrients, kept apart so that the other benchmarks are not
+   * run once per rule count.
+   */
+  @State(Scope.Thread)
+  public static class Rules {
+    @Param({"1", "2", "3", "4", "5"})
+    public int ruleCount;
+
+    private List<List<String>> rules; // nutrient rule lists run in turn
+
+    @Setup(Level.Trial)
+    public void setUp(FoodDataBenchmark benchmark) {
+      Random random = new Random(Catalogs.SEED + ruleCount);
+      rules = new ArrayList<>(QUERY_POOL_SIZE);
+      for (int i = 0; i < QUERY_POOL_SIZE; i++) {
+        // thresholds are values of random food items, so every rule matches some of them
+        List<String> ruleList = new ArrayList<>(ruleCount);
+        for (int r = 0; r < ruleCount; r++) {
+          String nutrient = NUTRIENTS[random.nextInt(NUTRIENTS.length)];
+          ruleList.add(nutrient + " " + COMPARATORS[random.nextInt(COMPARATORS.length)] + " "
+              + benchmark.foodItems.get(random.nextInt(benchmark.rows))
+                  .getNutrientValue(nutrient));
+        }
+        rules.add(ruleList);
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(catalogFile);
+    Files.deleteIfExists(saveFile);
+  }
+
+  private int nextQuery() {
+    int query = next;
+    next = (next + 1) % QUERY_POOL_SIZE;
+    return query;
+  }
+
+  @Benchmark
+  public FoodData loadFoodItems() {
+    foodData.loadFoodItems(catalogFile.toString());
+    return foodData;
+  }
+
+  @Benchmark
+  public List<FoodItem> filterByName() {
+    return foodData.filterByName(names[nextQuery()]);
+  }
+
+  @Benchmark
+  public List<FoodItem> filterByNutrients(Rules rules) {
+    return foodData.filterByNutrients(rules.rules.get(nextQuery()));
+  }
+
+  @Benchmark
+  public void saveFoodItems() {
+    foodData.saveFoodItems(saveFile.toString());
+  }
+}
@@ -0,0 +1,83 @@
+package application.benchmarks;
+
+import application.FoodData;
+import application.MealEvaluator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks MealEvaluator on a batch of seeded random meals, evaluated one after another on a
+ * single thread and as a batch in parallel. Scores are per meal; the parallel speedup depends on
+ * the number of CPUs, which is printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class MealEvaluatorBenchmark {
+
+  private static final int MEALS = 10000; // meals evaluated per invocation
+
+  @Param({"1000", "100000", "1000000"})
+  public int rows;
+
+  @Param({"5", "20", "100"})
+  public int foodsPerMeal;
+
+  private MealEvaluator evaluator;
+  private int[][] mealRows; // row ids of the food items of each meal
+  private double[][] quantities; // servings of each row of each meal
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    Path catalogFile = Catalogs.writeTempFile(Catalogs.generate(rows, Catalogs.SEED));
+    evaluator = new MealEvaluator(FoodData.fromFile(catalogFile.toString()));
+    Files.delete(catalogFile);
+
+    Random random = new Random(Catalogs.SEED);
+    mealRows = new int[MEALS][foodsPerMeal];
+    quantities = new double[MEALS][foodsPerMeal];
+    for (int m = 0; m < MEALS; m++) {
+      for (int i = 0; i < foodsPerMeal; i++) {
+        mealRows[m][i] = random.nextInt(rows);
+        quantities[m][i] = 0.5 * (1 + random.nextInt(6));
+      }
+    }
+    System.out.printf("%n%d meals of %d foods over %d rows, %d cpus%n", MEALS, foodsPerMeal,
+        evaluator.getRowCount(), Runtime.getRuntime().availableProcessors());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MEALS)
+  public MealEvaluator.Evaluation[] evaluate() {
+    MealEvaluator.Evaluation[] evaluations = new MealEvaluator.Evaluation[MEALS];
+    for (int m = 0; m < MEALS; m++) {
+      evaluations[m] = evaluator.evaluate(mealRows[m], quantities[m]);
+    }
+    return evaluations;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MEALS)
+  public MealEvaluator.Evaluation[] evaluateAll() {
+    return evaluator.evaluateAll(mealRows, quantities);
+  }
+}
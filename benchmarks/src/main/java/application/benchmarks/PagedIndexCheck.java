@@ -0,0 +1,301 @@
+package application.benchmarks;
+
+import application.BPTree;
+import application.FilePageStore;
+import application.FoodData;
+import application.FoodItem;
+import application.FoodQuery;
+import application.OffHeapFoodData;
+import application.OffHeapPageStore;
+import application.PagedBPTree;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks the paged indexes and the off-heap food data against the heap implementations on seeded
+ * random data, and prints the numbers quoted for them. PagedBPTree must give the same range
+ * searches and entries as BPTree, in native memory and in a file read through the smallest
+ * buffer pool, also once the file is reopened. FoodData must give the same rows with its indexes
+ * on disk as on the heap, and OffHeapFoodData the same rows as FoodData on a generated catalog.
+ * The pages missed by a cold scan of the file tree are printed with and without prefetching
+ * leaves. With --heap, only an off-heap catalog is loaded from a file and the heap it leaves in
+ * use is printed; run it with e.g. -Xmx64m on catalogs of different sizes to see that the heap
+ * does not grow with the catalog. Exits with status 1 if any check fails.
+ *
+ * Usage: java -cp benchmarks.jar application.benchmarks.PagedIndexCheck [rows | --heap file]
+ */
+public class PagedIndexCheck {
+
+  private static final long SEED = 3; // seed of the random keys and queries
+  private static final int TREE_ENTRIES = 100000; // entries inserted into every tree
+  private static final int KEY_RANGE = 5000; // distinct keys of the trees, in tenths
+  private static final int TREE_QUERIES = 100; // random keys searched in every tree
+  private static final int QUERIES = 300; // random queries of every food data check
+  private static final int FILE_PAGE_SIZE = 512; // small pages, so the file tree is deep
+  private static final int MIN_POOL_PAGES = 16; // smallest buffer pool, so pages are evicted
+  private static final int SCAN_POOL_PAGES = 64; // buffer pool of the cold scans
+  private static final int PREFETCH_LEAVES = 32; // leaves read ahead by the prefetching scan
+  private static final String[] COMPARATORS = {"<=", ">=", "=="};
+  private static final String[] NUTRIENTS = {"calories", "fat", "carbohydrate", "fiber",
+      "protein"};
+
+  private Random random = new Random(SEED);
+  private int failures; // checks that failed
+
+  /**
+   * Runs the checks.
+   *
+   * @param args the number of rows of the generated catalog, 50000 by default, or --heap and the
+   *        file of an off-heap catalog to measure the heap of
+   */
+  public static void main(String[] args) throws IOException {
+    PagedIndexCheck check = new PagedIndexCheck();
+    if (args.length == 2 && "--heap".equals(args[0])) {
+      check.checkOffHeapHeapUsage(args[1]);
+    } else {
+      int rows = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+      Path catalogFile = Catalogs.writeTempFile(Catalogs.generate(rows, Catalogs.SEED));
+      Path directory = Files.createTempDirectory("paged-index-check");
+      try {
+        for (int pageSize : new int[] {256, 4096}) {
+          try (PagedBPTree tree = new PagedBPTree(new OffHeapPageStore(pageSize))) {
+            check.compareTrees(tree, check.fill(tree), "off-heap " + pageSize);
+          }
+        }
+        check.checkFileTree(directory.resolve("tree.idx").toFile());
+        check.checkTemporaryStore(directory.toFile());
+        check.checkDiskFoodData(catalogFile, directory.toFile());
+        check.checkOffHeapFoodData(catalogFile);
+      } finally {
+        Files.deleteIfExists(catalogFile);
+        Files.deleteIfExists(directory.resolve("tree.idx"));
+        Files.deleteIfExists(directory);
+      }
+    }
+    System.out.println(check.failures == 0 ? "all checks passed"
+        : check.failures + " checks failed");
+    System.exit(check.failures == 0 ? 0 : 1);
+  }
+
+  /**
+   * Counts a failed check.
+   *
+   * @param ok the outcome of the check
+   * @param what the check, printed if it failed
+   */
+  private void check(boolean ok, String what) {
+    if (!ok) {
+      failures++;
+      System.out.println("FAILED: " + what);
+    }
+  }
+
+  /**
+   * Prints the heap used with only an off-heap catalog loaded.
+   */
+  private void checkOffHeapHeapUsage(String catalogFile) {
+    long before = usedHeap();
+    try (OffHeapFoodData offHeap = OffHeapFoodData.fromFile(catalogFile)) {
+      check(offHeap != null && offHeap.size() > 0, "off-heap catalog loads from " + catalogFile);
+      if (offHeap == null) {
+        return;
+      }
+      long after = usedHeap();
+      System.out.printf("off-heap food data of %d rows: %.1f MB off heap, %.1f MB of heap used"
+          + " (%.1f MB before loading), max heap %.0f MB%n", offHeap.size(),
+          offHeap.getOffHeapBytes() / 1e6, after / 1e6, before / 1e6,
+          Runtime.getRuntime().maxMemory() / 1e6);
+    }
+  }
+
+  /**
+   * Inserts random keys with many duplicates into a paged tree and into a new BPTree.
+   *
+   * @return the BPTree
+   */
+  private BPTree<Double, Integer> fill(PagedBPTree paged) {
+    BPTree<Double, Integer> reference = new BPTree<>(3);
+    for (int row = 0; row < TREE_ENTRIES; row++) {
+      double key = random.nextInt(KEY_RANGE) / 10.0;
+      paged.insert(key, row);
+      reference.insert(key, row);
+    }
+    return reference;
+  }
+
+  /**
+   * Checks a tree in a file read through the smallest buffer pool, so that inserts and searches
+   * keep evicting pages, then reopens the file and checks it again. Prints the misses of a cold
+   * scan of the whole tree with and without prefetching.
+   */
+  private void checkFileTree(File file) throws IOException {
+    BPTree<Double, Integer> reference;
+    try (PagedBPTree tree =
+        new PagedBPTree(new FilePageStore(file, FILE_PAGE_SIZE, MIN_POOL_PAGES))) {
+      reference = fill(tree);
+      compareTrees(tree, reference, "file");
+      FilePageStore pages = (FilePageStore) tree.getPageStore();
+      check(pages.getMissCount() > pages.getPoolPages() && pages.getWriteCount() > 0,
+          "file tree evicts pages: " + pages);
+      System.out.println("file pool: " + pages);
+    }
+    try (PagedBPTree tree =
+        new PagedBPTree(new FilePageStore(file, FILE_PAGE_SIZE, MIN_POOL_PAGES))) {
+      compareTrees(tree, reference, "reopened file");
+    }
+
+    for (int prefetchLeaves : new int[] {0, PREFETCH_LEAVES}) {
+      try (PagedBPTree tree =
+          new PagedBPTree(new FilePageStore(file, FILE_PAGE_SIZE, SCAN_POOL_PAGES))) {
+        tree.setPrefetchLeaves(prefetchLeaves);
+        check(tree.rangeSearch(Double.NEGATIVE_INFINITY, ">=").size() == TREE_ENTRIES,
+            "cold scan with prefetch " + prefetchLeaves);
+        System.out.println("cold scan, prefetch " + prefetchLeaves + " leaves: "
+            + tree.getPageStore());
+      }
+    }
+  }
+
+  /**
+   * Checks that closing a temporary store writes no page back, as its file is deleted.
+   */
+  private void checkTemporaryStore(File directory) throws IOException {
+    int files = directory.list().length;
+    FilePageStore pages = FilePageStore.createTemporary(directory, "check", MIN_POOL_PAGES);
+    PagedBPTree tree = new PagedBPTree(pages);
+    long writes;
+    try {
+      fill(tree);
+      writes = pages.getWriteCount();
+    } finally {
+      tree.close();
+    }
+    check(pages.getWriteCount() == writes, "closing a temporary store writes nothing back");
+    check(directory.list().length == files, "the temporary store file is deleted");
+  }
+
+  /**
+   * Compares the rows of random queries on food data with its indexes on disk, read through the
+   * smallest buffer pool, to those of food data with its indexes on the heap.
+   */
+  private void checkDiskFoodData(Path catalogFile, File directory) {
+    int files = directory.list().length;
+    FoodData heap = FoodData.fromFile(catalogFile.toString());
+    try (FoodData disk = FoodData.fromFile(catalogFile.toString(), directory, MIN_POOL_PAGES)) {
+      List<FoodQuery> queries = new ArrayList<>();
+      for (int q = 0; q < QUERIES; q++) {
+        FoodQuery query = randomQuery(heap, q % 2 == 0);
+        queries.add(query);
+        BitSet rows = heap.executeQuery(query, FoodData.AccessPath.INDEX);
+        check(disk.executeQuery(query, FoodData.AccessPath.INDEX).equals(rows),
+            "disk index path " + query);
+        check(disk.executeQuery(query, FoodData.AccessPath.SCAN).equals(rows),
+            "disk scan path " + query);
+        check(disk.filterRows(query).equals(rows), "disk filterRows " + query);
+        check(disk.explain(query).getResultRows() == rows.cardinality(), "disk explain " + query);
+      }
+      List<BitSet> batch = disk.filterBatch(queries);
+      for (int q = 0; q < queries.size(); q++) {
+        check(batch.get(q).equals(heap.filterRows(queries.get(q))),
+            "disk filterBatch " + queries.get(q));
+      }
+    }
+    check(directory.list().length == files, "closing the food data deletes its index files");
+  }
+
+  /**
+   * Compares the range searches and the entries of a paged tree to those of a BPTree.
+   */
+  private void compareTrees(PagedBPTree paged, BPTree<Double, Integer> reference, String label) {
+    check(paged.size() == TREE_ENTRIES, label + " holds " + TREE_ENTRIES + " entries");
+    for (int q = 0; q < TREE_QUERIES; q++) {
+      // keys below, between and above the inserted ones too
+      double key = (random.nextInt(KEY_RANGE + 200) - 100) / 10.0 + (q % 7 == 0 ? 0.05 : 0);
+      for (String comparator : COMPARATORS) {
+        check(sorted(paged.rangeSearch(key, comparator))
+            .equals(sorted(reference.rangeSearch(key, comparator))),
+            label + " rangeSearch(" + key + ", " + comparator + ")");
+      }
+    }
+    List<Double> keys = new ArrayList<>();
+    List<Integer> values = new ArrayList<>();
+    paged.forEachEntry((key, value) -> {
+      keys.add(key);
+      values.add(value);
+    });
+    List<Double> sortedKeys = new ArrayList<>(keys);
+    Collections.sort(sortedKeys);
+    check(keys.equals(sortedKeys), label + " forEachEntry in key order");
+    check(sorted(values).equals(sorted(reference.rangeSearch(Double.NEGATIVE_INFINITY, ">="))),
+        label + " forEachEntry visits every entry once");
+    System.out.println(label + ": " + paged);
+  }
+
+  /**
+   * Compares the rows of random queries on the off-heap food data to those of FoodData.
+   */
+  private void checkOffHeapFoodData(Path catalogFile) {
+    FoodData foodData = FoodData.fromFile(catalogFile.toString());
+    try (OffHeapFoodData offHeap = OffHeapFoodData.fromFile(catalogFile.toString())) {
+      check(offHeap.size() == foodData.size(), "off-heap and heap food data hold the same rows");
+      for (int q = 0; q < QUERIES; q++) {
+        FoodQuery query = randomQuery(foodData, true);
+        check(offHeap.filterRows(query).equals(foodData.filterRows(query)),
+            "off-heap filterRows " + query);
+      }
+      for (int row = 0; row < foodData.size(); row += 997) {
+        FoodItem foodItem = foodData.getFoodItem(row);
+        FoodItem byId = offHeap.getById(foodItem.getID());
+        check(byId != null && byId.getName().equals(foodItem.getName())
+            && byId.getNutrients().equals(foodItem.getNutrients())
+            && offHeap.getRowById(foodItem.getID()) == row, "off-heap getById " + row);
+      }
+    }
+  }
+
+  /**
+   * Makes a random query of up to two nutrient rules on values found in the food data, and a name
+   * rule on part of a name if asked to.
+   */
+  private FoodQuery randomQuery(FoodData foodData, boolean withName) {
+    List<String> rules = new ArrayList<>();
+    int ruleCount = random.nextInt(3);
+    for (int i = 0; i < ruleCount; i++) {
+      String nutrient = NUTRIENTS[random.nextInt(NUTRIENTS.length)];
+      rules.add(nutrient + " " + COMPARATORS[random.nextInt(COMPARATORS.length)] + " "
+          + foodData.getFoodItem(random.nextInt(foodData.size())).getNutrientValue(nutrient));
+    }
+    String name = null;
+    if (withName && random.nextInt(3) == 0) {
+      name = foodData.getFoodItem(random.nextInt(foodData.size())).getName().substring(0, 3);
+    }
+    return new FoodQuery(name, rules);
+  }
+
+  /**
+   * Sorts a copy of a list of rows.
+   */
+  private static List<Integer> sorted(List<Integer> rows) {
+    List<Integer> copy = new ArrayList<>(rows);
+    Collections.sort(copy);
+    return copy;
+  }
+
+  /**
+   * Gets the heap in use after collecting garbage.
+   */
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -2,6 +2,8 @@ package application;
 
 
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Implementation of a B+ tree to allow efficient access to
@@ -73,6 +75,8 @@ public class BPTree<K extends Comparable<K>, V> implements BPTreeADT<K, V> {
      */
     @Override
     public List<V> rangeSearch(K key, String comparator) {
+        if (key == null || comparator == null)
+            return EMPTY_VALUES;
         if (!comparator.contentEquals(LESS) &&
             !comparator.contentEquals(GREATER) &&
             !comparator.contentEquals(EQUAL) )
@@ -82,6 +86,126 @@ public class BPTree<K extends Comparable<K>, V> implements BPTreeADT<K, V> {
         return result;
     }
 
+    /**
+     * Counts the leaves a range search with the same arguments reads,
+     * following the same path without collecting the values.
+     *
+     * @param key to be searched
+     * @param comparator "<=", "==" or ">="
+     * @return number of leaves visited, 0 for invalid arguments
+     */
+    public int countLeavesVisited(K key, String comparator) {
+        return rangeSearch(key, comparator, value -> {});
+    }
+
+    /**
+     * Visits the values of the entries that meet the specification in
+     * key order, following the same path as a range search without
+     * collecting the values into a list.
+     *
+     * @param key to be searched
+     * @param comparator "<=", "==" or ">="
+     * @param visitor receives the value of each matching entry
+     * @return number of leaves visited, 0 for invalid arguments
+     */
+    public int rangeSearch(K key, String comparator, Consumer<V> visitor) {
+        if (key == null || comparator == null
+                || !(comparator.equals(LESS) || comparator.equals(GREATER)
+                        || comparator.equals(EQUAL)))
+            return 0;
+
+        Node node = root;
+        while (node instanceof BPTree.InternalNode) {
+            InternalNode internal = (InternalNode) node;
+            node = comparator.equals(LESS) ? internal.children.get(0)
+                    : internal.children.get(internal.lowerBound(key));
+        }
+        LeafNode leaf = (LeafNode) node;
+        int start = comparator.equals(LESS) ? 0 : leaf.lowerBound(key);
+        int visited = 0;
+        for (; leaf != null; leaf = leaf.next, start = 0) {
+            visited++;
+            for (int i = start; i < leaf.keys.size(); i++) {
+                if (leaf.keys.get(i).compareTo(key) > 0
+                        && !comparator.equals(GREATER)) {
+                    return visited;
+                }
+                visitor.accept(leaf.values.get(i));
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Visits every entry in ascending key order with a single walk
+     * along the leaf chain, starting from the leftmost leaf.
+     *
+     * @param visitor receives the key and the value of each entry
+     */
+    public void forEachEntry(BiConsumer<K, V> visitor) {
+        Node node = root;
+        while (node instanceof BPTree.InternalNode) {
+            node = ((InternalNode) node).children.get(0);
+        }
+        for (LeafNode leaf = (LeafNode) node; leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.keys.size(); i++) {
+                visitor.accept(leaf.keys.get(i), leaf.values.get(i));
+            }
+        }
+    }
+
+    /**
+     * Completes the flight recorder event of a node split, if it is
+     * being recorded.
+     *
+     * @param event the event, begun before the split
+     * @param leaf true if a leaf node was split
+     * @param keysMoved number of keys moved to the new sibling
+     */
+    private void commitSplit(FoodDataEvents.IndexSplit event,
+            boolean leaf, int keysMoved) {
+        if (event.shouldCommit()) {
+            event.leaf = leaf;
+            event.keysMoved = keysMoved;
+            event.branchingFactor = branchingFactor;
+            event.commit();
+        }
+    }
+
+    /**
+     * Gets the number of levels of the tree, 1 when the root is a leaf.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        int height = 1;
+        for (Node node = root; node instanceof BPTree.InternalNode; height++) {
+            node = ((InternalNode) node).children.get(0);
+        }
+        return height;
+    }
+
+    /**
+     * Counts the internal and leaf nodes of the tree.
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        int count = 0;
+        Deque<Node> pending = new ArrayDeque<Node>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            count++;
+            if (node instanceof BPTree.InternalNode) {
+                for (Node child : ((InternalNode) node).children) {
+                    pending.push(child);
+                }
+            }
+        }
+        return count;
+    }
+
     /**
      * returns the string that represents the internal structure of
      * this instance
@@ -176,6 +300,24 @@ public class BPTree<K extends Comparable<K>, V> implements BPTreeADT<K, V> {
             return keys.toString();
         }
 
+        /**
+         * Gets the index of the first key that is greater than or
+         * equal to the given key, or the number of keys if there is none
+         *
+         * @param key key to be located
+         * @return index of the first key >= key
+         */
+        int lowerBound(K key) {
+            int low = 0;
+            int high = keys.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys.get(mid).compareTo(key) < 0) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+
         /**
          * make the root node when the previous root node is overflow
          * return the newly created root node
@@ -284,12 +426,12 @@ public class BPTree<K extends Comparable<K>, V> implements BPTreeADT<K, V> {
                         return;
                     }
 
-                    int tempKeyPosition
-                            = Collections.binarySearch(temp.parent.keys, tempKeyToPromote);
-                    int tempPositionModified = tempKeyPosition;
-                    if (tempKeyPosition < 0) {
-                        tempPositionModified *= -1;
-                        tempPositionModified -= 1;
+                    // locate temp by identity, a binary search over the
+                    // parent keys is ambiguous when separators are duplicated
+                    int tempPositionModified = 0;
+                    for ( ; tempPositionModified < temp.parent.children.size();
+                            tempPositionModified++) {
+                        if (temp.parent.children.get(tempPositionModified) == temp) break;
                     }
                     temp.parent.keys.add(tempPositionModified, tempKeyToPromote);
                     temp.parent.children.add(tempPositionModified + 1, internalSibling);
@@ -305,6 +447,8 @@ public class BPTree<K extends Comparable<K>, V> implements BPTreeADT<K, V> {
          * @see BPTree.Node#split()
          */
         Node split() {
+            FoodDataEvents.IndexSplit event = new FoodDataEvents.IndexSplit();
+            event.begin();
         	InternalNode sibling = new InternalNode();
         	int start = keys.size() / 2;
             for (int i = start; i < keys.size(); i++) {
@@ -314,6 +458,7 @@ public class BPTree<K extends Comparable<K>, V> implements BPTreeADT<K, V> {
 
             keys.subList(start, keys.size()).clear();
             children.subList(start + 1, children.size()).clear();
+            commitSplit(event, false, sibling.keys.size());
             
             return sibling;
         }
@@ -323,16 +468,16 @@ public class BPTree<K extends Comparable<K>, V> implements BPTreeADT<K, V> {
          * @see BPTree.Node#rangeSearch(java.lang.Comparable, java.lang.String)
          */
         List<V> rangeSearch(K key, String comparator) {
-            int childIndex = Collections.binarySearch(keys, key);
-            if (childIndex < 0){
-                childIndex = -childIndex - 1;
-            }
-
-            Node child = children.get(childIndex);
+            // "<=" collects everything from the leftmost leaf onwards,
+            // the other comparators start at the first leaf that may
+            // hold the key. Duplicates of a separator key can sit on
+            // both sides of it, so descend left of the first key >= key.
+            Node child = comparator.equals(LESS)
+                    ? children.get(0) : children.get(lowerBound(key));
 
             return child.rangeSearch(key, comparator);
         }
-    
+
     } // End of class InternalNode
     
     
@@ -404,6 +549,8 @@ public class BPTree<K extends Comparable<K>, V> implements BPTreeADT<K, V> {
          * @see BPTree.Node#split()
          */
         Node split() {
+            FoodDataEvents.IndexSplit event = new FoodDataEvents.IndexSplit();
+            event.begin();
         	LeafNode sibling = new LeafNode();
             int start = keys.size() / 2;
             for (int i = start; i < keys.size(); i++) {
@@ -420,6 +567,7 @@ public class BPTree<K extends Comparable<K>, V> implements BPTreeADT<K, V> {
             sibling.next = next;
             sibling.previous = this;
             this.next = sibling;
+            commitSplit(event, true, sibling.keys.size());
             
             return sibling;
         }
@@ -429,105 +577,27 @@ public class BPTree<K extends Comparable<K>, V> implements BPTreeADT<K, V> {
          * @see BPTree.Node#rangeSearch(Comparable, String)
          */
         List<V> rangeSearch(K key, String comparator) {
-            int valueIndex = Collections.binarySearch(keys, key);
-            if (valueIndex < 0) {
-                if (comparator.equals(EQUAL)) {
-                    if (key.compareTo(keys.get(0)) < 0) return EMPTY_VALUES;
-                    if (next == null) return EMPTY_VALUES;
-
-                    return next.rangeSearch(key, comparator);
-                }
-                if (comparator.equals(LESS)) valueIndex = -valueIndex - 1;
-                if (comparator.equals(GREATER)) valueIndex = -valueIndex;
-            }
+            // "<=" is answered from the leftmost leaf, the others from
+            // the first key that is >= key
+            int start = comparator.equals(LESS) ? 0 : lowerBound(key);
 
             List<V> answer = new ArrayList<>();
-            if (!comparator.equals(LESS)) {
-                answer.addAll(getRangeValues(comparator, valueIndex));
-            } else {
-                // valueIndex points to the leftmost index of the key
-                // there might be the same value on the right side of the tree.
-                // so in the case of less than equal filter,
-                // before collecting values toward the left side of the tree,
-                // gather the same values in the right side of the tree.
-                for (int i = valueIndex; i < keys.size(); i++) {
-                    if (key.compareTo(keys.get(i)) != 0) break;
-
-                    answer.add(values.get(i));
-                }
-
-                LeafNode sameValueNode = next;
-                while (sameValueNode != null &&
-                        key.compareTo(sameValueNode.keys.get(0)) == 0) {
-                    for (int i = 0; i < sameValueNode.keys.size(); i++) {
-                        if (key.compareTo(sameValueNode.keys.get(i)) != 0) break;
-
-                        answer.add(sameValueNode.values.get(i));
-                    }
-
-                    sameValueNode = sameValueNode.next;
-                }
-            }
-            LeafNode temp = getNextLeaf(comparator);
-            while (temp != null) {
-                if (comparator.equals(EQUAL) &&
-                        key.compareTo(temp.keys.get(0)) != 0) {
-                    break;
-                }
-
-                int start = comparator.equals(LESS) ? temp.keys.size() - 1 : 0;
-                answer.addAll(temp.getRangeValues(comparator, start));
-                temp = temp.getNextLeaf(comparator);
-            }
-
-            return answer;
-        }
-
-        /**
-         * Returns a list of values from the index, start, as long as
-         * the condition is met
-         *
-         * @param comparator one of "<=", "==", or ">="
-         * @param start starting index to collect the value from
-         * @return a list of values that satisfy the condition
-         */
-        private List<V> getRangeValues(String comparator, int start) {
-            List<V> answer = new ArrayList<>();
-
-            if (comparator.equals(LESS)) {
-                for (int i = start; 0 <= i; i--) {
-                    answer.add(values.get(i));
-                }
-
-            } else if (comparator.equals(GREATER)){
-                for (int i = start; i < keys.size(); i++) {
-                    answer.add(values.get(i));
-                }
-
-            } else {
-                for (int i = start; i < keys.size(); i++) {
-                    if (keys.get(start).compareTo(keys.get(i)) != 0) {
+            LeafNode leaf = this;
+            while (leaf != null) {
+                for (int i = start; i < leaf.keys.size(); i++) {
+                    int comparison = leaf.keys.get(i).compareTo(key);
+                    if (comparison > 0 && !comparator.equals(GREATER)) {
                         return answer;
                     }
 
-                    answer.add(values.get(i));
+                    answer.add(leaf.values.get(i));
                 }
+                leaf = leaf.next;
+                start = 0;
             }
 
             return answer;
         }
-
-        /**
-         * get the next leaf depending on the comparator
-         * for example, if the comparator is "<=", the next leaf would be
-         * the previous one.
-         *
-         * @param comparator
-         * @return the next node depending on the comparator
-         */
-        private LeafNode getNextLeaf(String comparator) {
-            return comparator.equals(LESS) ? previous : next;
-        }
         
     } // End of class LeafNode
     
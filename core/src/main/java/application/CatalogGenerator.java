@@ -0,0 +1,353 @@
+package application;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Generates synthetic food item catalogs for scale and load testing. The same settings and seed
+ * always give the same catalog. Food items are produced one at a time and handed to a consumer,
+ * e.g. a writer of the food data file format, so catalogs of any size are generated in constant
+ * memory.
+ *
+ * Nutrient values are drawn from an exponential distribution around a mean, rounded to a step
+ * like the values of nutrition labels, and are zero at a given rate. Calories can instead be
+ * derived from fat, carbohydrate and protein. Names are made of words of a vocabulary joined by
+ * underscores. A share of the food items reuses the name of an earlier one; since every name is a
+ * function of the seed and its number, reusing a name only needs the count of names issued.
+ */
+public class CatalogGenerator {
+
+  // default vocabulary of the names
+  private static final String[] DEFAULT_VOCABULARY = {"Acme", "Arnold", "Sunbeam", "Kellogg",
+      "Nalley", "Schwans", "Cascade", "Roma", "Tillamook", "Annies", "Kirkland", "Barilla",
+      "Organic", "Whole", "Grain", "Honey", "Wheat", "Bread", "Cereal", "Chicken", "Yogurt",
+      "Cheese", "Pasta", "Soup", "Cookies", "Crackers", "Juice", "Salad", "Burger", "Pickles",
+      "Granola", "Rice", "Beans", "Sauce", "Frozen", "Pizza", "Chips", "Salsa", "Butter"};
+
+  private long seed; // seed of the catalog
+  private double duplicateNameRate; // share of food items reusing an earlier name
+  private String[] vocabulary; // words the names are made of
+  private int minNameWords; // fewest words in a name
+  private int maxNameWords; // most words in a name
+  private boolean deriveCalories; // whether calories follow from the other nutrients
+  private Map<Nutrient, Distribution> distributions; // how the value of each nutrient is drawn
+
+  /**
+   * How the values of a nutrient are drawn.
+   */
+  public static class Distribution {
+    private double mean; // mean of the values that are not zero
+    private double step; // the values are rounded to a multiple of the step
+    private double zeroRate; // share of values that are zero
+
+    /**
+     * Creates a distribution.
+     *
+     * @param mean mean of the values that are not zero, must not be negative
+     * @param step the values are rounded to a multiple of this, 0 for no rounding
+     * @param zeroRate share of values that are zero, between 0 and 1
+     */
+    public Distribution(double mean, double step, double zeroRate) {
+      if (!(mean >= 0) || !(step >= 0) || !(zeroRate >= 0 && zeroRate <= 1)) {
+        throw new IllegalArgumentException(
+            "Invalid distribution: mean " + mean + ", step " + step + ", zero rate " + zeroRate);
+      }
+      this.mean = mean;
+      this.step = step;
+      this.zeroRate = zeroRate;
+    }
+
+    /**
+     * Draws a value.
+     *
+     * @param random the random source
+     * @return the value
+     */
+    double draw(Random random) {
+      if (random.nextDouble() < zeroRate) {
+        return 0.0;
+      }
+      return round(-mean * Math.log(1 - random.nextDouble()));
+    }
+
+    /**
+     * Rounds a value to the step of this distribution.
+     */
+    double round(double value) {
+      return step == 0 ? value : Math.round(value / step) * step;
+    }
+
+    @Override
+    public String toString() {
+      return mean + ":" + step + ":" + zeroRate;
+    }
+  }
+
+  /**
+   * Creates a generator with label-like defaults: grams rounded to 0.5, calories derived from
+   * the other nutrients and rounded to 10, names of two to three words of which 20% repeat.
+   *
+   * @param seed the seed
+   */
+  public CatalogGenerator(long seed) {
+    this.seed = seed;
+    duplicateNameRate = 0.2;
+    vocabulary = DEFAULT_VOCABULARY;
+    minNameWords = 2;
+    maxNameWords = 3;
+    deriveCalories = true;
+    distributions = new EnumMap<>(Nutrient.class);
+    distributions.put(Nutrient.FATS, new Distribution(8.0, 0.5, 0.1));
+    distributions.put(Nutrient.CARBOHYDRATES, new Distribution(20.0, 0.5, 0.05));
+    distributions.put(Nutrient.PROTEINS, new Distribution(6.0, 0.5, 0.1));
+    distributions.put(Nutrient.FIBER, new Distribution(2.0, 0.5, 0.35));
+    distributions.put(Nutrient.CALORIES, new Distribution(200.0, 10.0, 0.02));
+  }
+
+  /**
+   * Sets the share of food items that reuse the name of an earlier food item.
+   *
+   * @param duplicateNameRate the rate, between 0 and 1
+   * @return this generator
+   */
+  public CatalogGenerator setDuplicateNameRate(double duplicateNameRate) {
+    if (!(duplicateNameRate >= 0 && duplicateNameRate <= 1)) {
+      throw new IllegalArgumentException("Invalid duplicate rate: " + duplicateNameRate);
+    }
+    this.duplicateNameRate = duplicateNameRate;
+    return this;
+  }
+
+  /**
+   * Sets the words the names are made of.
+   *
+   * @param vocabulary the words, letters and digits only
+   * @return this generator
+   */
+  public CatalogGenerator setVocabulary(List<String> vocabulary) {
+    if (vocabulary.isEmpty()) {
+      throw new IllegalArgumentException("The vocabulary is empty");
+    }
+    for (String word : vocabulary) {
+      if (!word.matches("[a-zA-Z0-9]+")) {
+        throw new IllegalArgumentException("Invalid word: " + word);
+      }
+    }
+    this.vocabulary = vocabulary.toArray(new String[0]);
+    return this;
+  }
+
+  /**
+   * Sets the number of words of the names.
+   *
+   * @param minNameWords fewest words in a name, at least 1
+   * @param maxNameWords most words in a name
+   * @return this generator
+   */
+  public CatalogGenerator setNameWords(int minNameWords, int maxNameWords) {
+    if (minNameWords < 1 || maxNameWords < minNameWords) {
+      throw new IllegalArgumentException(
+          "Invalid name length: " + minNameWords + " to " + maxNameWords + " words");
+    }
+    this.minNameWords = minNameWords;
+    this.maxNameWords = maxNameWords;
+    return this;
+  }
+
+  /**
+   * Sets how the values of a nutrient are drawn. Setting the distribution of the calories stops
+   * deriving them from the other nutrients.
+   *
+   * @param nutrient the nutrient
+   * @param distribution the distribution
+   * @return this generator
+   */
+  public CatalogGenerator setDistribution(Nutrient nutrient, Distribution distribution) {
+    distributions.put(nutrient, distribution);
+    if (nutrient == Nutrient.CALORIES) {
+      deriveCalories = false;
+    }
+    return this;
+  }
+
+  /**
+   * Generates food items.
+   *
+   * @param rows number of food items
+   * @param consumer receives the food items, in order
+   */
+  public void generate(long rows, Consumer<FoodItem> consumer) {
+    Random random = new Random(seed);
+    long namesIssued = 0;
+    for (long row = 0; row < rows; row++) {
+      long nameNumber;
+      if (namesIssued > 0 && random.nextDouble() < duplicateNameRate) {
+        nameNumber = (long) (random.nextDouble() * namesIssued);
+      } else {
+        nameNumber = namesIssued++;
+      }
+      FoodItem foodItem = new FoodItem(id(random.nextLong()), name(nameNumber));
+      double[] values = new double[Nutrient.values().length];
+      for (Nutrient nutrient : Nutrient.values()) {
+        values[nutrient.ordinal()] = distributions.get(nutrient).draw(random);
+      }
+      if (deriveCalories) {
+        values[Nutrient.CALORIES.ordinal()] = distributions.get(Nutrient.CALORIES).round(
+            MealEvaluator.CALORIES_PER_FAT * values[Nutrient.FATS.ordinal()]
+                + MealEvaluator.CALORIES_PER_CARB * values[Nutrient.CARBOHYDRATES.ordinal()]
+                + MealEvaluator.CALORIES_PER_PROTEIN * values[Nutrient.PROTEINS.ordinal()]);
+      }
+      for (Nutrient nutrient : Nutrient.values()) {
+        foodItem.addNutrient(nutrient.getKey(), values[nutrient.ordinal()]);
+      }
+      consumer.accept(foodItem);
+    }
+  }
+
+  /**
+   * Formats an id like those of the food data file, 24 hexadecimal digits.
+   *
+   * @param bits random bits of the id
+   * @return the id
+   */
+  private static String id(long bits) {
+    char[] digits = new char[24];
+    Arrays.fill(digits, 0, 8, '0');
+    for (int i = 23; i >= 8; i--) {
+      digits[i] = Character.forDigit((int) (bits & 0xF), 16);
+      bits >>>= 4;
+    }
+    return new String(digits);
+  }
+
+  /**
+   * Builds the name with the given number. The name only depends on the seed and the number.
+   *
+   * @param nameNumber number of the name
+   * @return the name
+   */
+  private String name(long nameNumber) {
+    Random random = new Random(seed ^ (nameNumber * 0x9E3779B97F4A7C15L));
+    int words = minNameWords + random.nextInt(maxNameWords - minNameWords + 1);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      if (i > 0) {
+        sb.append('_');
+      }
+      sb.append(vocabulary[random.nextInt(vocabulary.length)]);
+    }
+    return sb.append(nameNumber).toString();
+  }
+
+  /**
+   * Generates food items in the food data file format.
+   *
+   * @param rows number of food items
+   * @param writer receives the lines, it is not closed
+   * @throws IOException if writing fails
+   */
+  public void writeCsv(long rows, Writer writer) throws IOException {
+    try {
+      generate(rows, foodItem -> {
+        try {
+          FoodItemFormat.appendFileRecord(writer, foodItem);
+          writer.write('\n');
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Writes a catalog in the food data file format.
+   *
+   * Usage: java application.CatalogGenerator --rows n [--seed s] [--out file]
+   * [--duplicates rate] [--vocabulary file] [--words min:max]
+   * [--nutrient key=mean:step:zeroRate]...
+   *
+   * @param args the command line options
+   */
+  public static void main(String[] args) throws IOException {
+    long rows = -1;
+    long seed = 0;
+    String out = null;
+    CatalogGenerator generator = null;
+    try {
+      for (int i = 0; i < args.length; i += 2) {
+        if (i + 1 == args.length) {
+          throw new IllegalArgumentException("Missing value of " + args[i]);
+        }
+        if ("--seed".equals(args[i])) {
+          seed = Long.parseLong(args[i + 1]);
+        }
+      }
+      generator = new CatalogGenerator(seed);
+      for (int i = 0; i < args.length; i += 2) {
+        String value = args[i + 1];
+        switch (args[i]) {
+          case "--rows":
+            rows = Long.parseLong(value);
+            break;
+          case "--seed":
+            break;
+          case "--out":
+            out = value;
+            break;
+          case "--duplicates":
+            generator.setDuplicateNameRate(Double.parseDouble(value));
+            break;
+          case "--vocabulary":
+            generator.setVocabulary(Files.readAllLines(Paths.get(value)));
+            break;
+          case "--words":
+            String[] words = value.split(":");
+            generator.setNameWords(Integer.parseInt(words[0]), Integer.parseInt(words[1]));
+            break;
+          case "--nutrient":
+            String[] keyAndDistribution = value.split("=");
+            String[] parameters = keyAndDistribution[1].split(":");
+            Nutrient nutrient = Nutrient.fromKey(keyAndDistribution[0]);
+            if (nutrient == null) {
+              throw new IllegalArgumentException("Unknown nutrient: " + keyAndDistribution[0]);
+            }
+            generator.setDistribution(nutrient, new Distribution(Double.parseDouble(parameters[0]),
+                Double.parseDouble(parameters[1]), Double.parseDouble(parameters[2])));
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option: " + args[i]);
+        }
+      }
+      if (rows < 0) {
+        throw new IllegalArgumentException("Missing --rows");
+      }
+    } catch (RuntimeException e) {
+      System.err.println(e.getMessage());
+      System.err.println("Usage: java application.CatalogGenerator --rows n [--seed s]"
+          + " [--out file] [--duplicates rate] [--vocabulary file] [--words min:max]"
+          + " [--nutrient key=mean:step:zeroRate]...");
+      System.exit(2);
+    }
+
+    try (Writer writer = new BufferedWriter(out == null
+        ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+        : new FileWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+      generator.writeCsv(rows, writer);
+    }
+  }
+}
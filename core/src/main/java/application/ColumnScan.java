@@ -0,0 +1,170 @@
+package application;
+
+import java.util.BitSet;
+
+/**
+ * Evaluates the nutrient rules of a query by scanning the primitive nutrient columns of the food
+ * data instead of walking the indexes. Every rule is one pass over its column that builds the
+ * result 64 rows at a time into the words of a bitmap, with the comparison hoisted out of the
+ * loop, so the cost depends on the number of rows and not on how many of them match. Blocks of
+ * rows that an earlier rule already ruled out are skipped.
+ *
+ * When the JVM runs with --add-modules jdk.incubator.vector, the passes compare several rows per
+ * instruction with VectorColumnScan. Otherwise, or with -Dfoodquery.scalarScan=true, they fall back
+ * to the scalar loops below, which give the same rows.
+ */
+public class ColumnScan {
+
+  private static final int SAMPLE_SIZE = 256; // rows read to estimate the selectivity of a rule
+
+  // whether the passes use the Vector API, checked before VectorColumnScan is ever loaded
+  private static final boolean VECTORIZED = !Boolean.getBoolean("foodquery.scalarScan")
+      && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+      && VectorColumnScan.isUseful();
+
+  private ColumnScan() {}
+
+  /**
+   * Tells whether the column scans compare several rows per instruction with the Vector API.
+   *
+   * @return true if the Vector API is used, false for the scalar loops
+   */
+  public static boolean isVectorized() {
+    return VECTORIZED;
+  }
+
+  /**
+   * Removes from a set of rows those that do not satisfy every nutrient rule of the query.
+   *
+   * @param columns nutrient columns by Nutrient.ordinal() and then by row id
+   * @param rowCount number of rows in the columns
+   * @param query the compiled query
+   * @param rows the candidate rows, e.g. those matching the name rule
+   * @return the candidate rows that satisfy every nutrient rule
+   * @throws IllegalArgumentException if a rule is on an unknown nutrient
+   */
+  public static BitSet filter(double[][] columns, int rowCount, FoodQuery query, BitSet rows) {
+    long[] words = new long[(rowCount + 63) >>> 6];
+    long[] candidates = rows.toLongArray();
+    System.arraycopy(candidates, 0, words, 0, Math.min(candidates.length, words.length));
+    for (int i = 0; i < query.getRuleCount(); i++) {
+      double[] column = columns[getNutrient(query, i).ordinal()];
+      double value = query.getValue(i);
+      if (VECTORIZED) {
+        VectorColumnScan.scan(column, rowCount, query.getComparator(i), value, words);
+        continue;
+      }
+      switch (query.getComparator(i)) {
+        case "<=":
+          scanLessOrEqual(column, rowCount, value, words);
+          break;
+        case ">=":
+          scanGreaterOrEqual(column, rowCount, value, words);
+          break;
+        default:
+          scanEqual(column, rowCount, value, words);
+          break;
+      }
+    }
+    return BitSet.valueOf(words);
+  }
+
+  /**
+   * Clears the bits of the rows whose value is above the threshold.
+   */
+  private static void scanLessOrEqual(double[] column, int rowCount, double value,
+      long[] words) {
+    for (int block = 0; block < words.length; block++) {
+      if (words[block] == 0) {
+        continue;
+      }
+      int base = block << 6;
+      int end = Math.min(64, rowCount - base);
+      long mask = 0;
+      for (int i = 0; i < end; i++) {
+        mask |= (column[base + i] <= value ? 1L : 0L) << i;
+      }
+      words[block] &= mask;
+    }
+  }
+
+  /**
+   * Clears the bits of the rows whose value is below the threshold. NaN values are kept, as the
+   * indexes order them above every value.
+   */
+  private static void scanGreaterOrEqual(double[] column, int rowCount, double value,
+      long[] words) {
+    for (int block = 0; block < words.length; block++) {
+      if (words[block] == 0) {
+        continue;
+      }
+      int base = block << 6;
+      int end = Math.min(64, rowCount - base);
+      long mask = 0;
+      for (int i = 0; i < end; i++) {
+        mask |= (column[base + i] < value ? 0L : 1L) << i;
+      }
+      words[block] &= mask;
+    }
+  }
+
+  /**
+   * Clears the bits of the rows whose value differs from the threshold.
+   */
+  private static void scanEqual(double[] column, int rowCount, double value, long[] words) {
+    for (int block = 0; block < words.length; block++) {
+      if (words[block] == 0) {
+        continue;
+      }
+      int base = block << 6;
+      int end = Math.min(64, rowCount - base);
+      long mask = 0;
+      for (int i = 0; i < end; i++) {
+        mask |= (column[base + i] == value ? 1L : 0L) << i;
+      }
+      words[block] &= mask;
+    }
+  }
+
+  /**
+   * Estimates the share of rows satisfying a rule from an evenly spread sample of the column.
+   *
+   * @param column the nutrient column of the rule
+   * @param rowCount number of rows in the column
+   * @param comparator the comparator of the rule
+   * @param value the value of the rule
+   * @return the estimated selectivity, between 0 and 1
+   */
+  public static double estimateSelectivity(double[] column, int rowCount, String comparator,
+      double value) {
+    if (rowCount == 0) {
+      return 0.0;
+    }
+    int step = Math.max(1, rowCount / SAMPLE_SIZE);
+    int sampled = 0;
+    int matched = 0;
+    for (int row = 0; row < rowCount; row += step) {
+      if (FoodQuery.compare(column[row], comparator, value)) {
+        matched++;
+      }
+      sampled++;
+    }
+    return (double) matched / sampled;
+  }
+
+  /**
+   * Gets the nutrient of a rule of the query.
+   *
+   * @param query the query
+   * @param i index of the rule
+   * @return the nutrient
+   * @throws IllegalArgumentException if the nutrient is unknown
+   */
+  static Nutrient getNutrient(FoodQuery query, int i) {
+    Nutrient nutrient = Nutrient.fromKey(query.getNutrient(i));
+    if (nutrient == null) {
+      throw new IllegalArgumentException("Unknown nutrient: " + query.getNutrient(i));
+    }
+    return nutrient;
+  }
+}
@@ -0,0 +1,405 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Pages kept in a file and read through a buffer pool of a fixed number of frames in native
+ * memory, so a tree far larger than memory can be searched with a bounded footprint. A page is
+ * read into a free frame when it is pinned; when no frame is free, a clock sweep evicts the first
+ * unpinned page not used since the last sweep, writing it back if it is dirty. Pages asked for
+ * by {@link #prefetch(int[], int, int)} are read ahead in runs of consecutive pages, one read per
+ * run. The methods are synchronized, so several threads can search the same tree at once; a pinned
+ * page is never evicted, so its buffer can be read without holding the lock.
+ */
+public class FilePageStore implements PageStore {
+
+  static final int DEFAULT_POOL_PAGES = 1024; // 4 MB of 4 KB pages
+  private static final int MIN_POOL_PAGES = 16; // enough for the pins of any tree operation
+  private static final int NO_PAGE = -1;
+
+  private FileChannel channel; // the file of the pages
+  private boolean temporary; // true if the file is deleted on close, so never needs flushing
+  private int pageSize; // bytes per page, a power of two
+  private int pageCount; // number of pages, in the file or still only in the pool
+
+  private OffHeapArena frameMemory; // memory of the frames
+  private ByteBuffer[] frames; // the frames of the pool
+  private int[] framePages; // page held by each frame, NO_PAGE when free
+  private int[] pinCounts; // pins of the page of each frame
+  private boolean[] dirty; // true if the page of the frame differs from the file
+  private boolean[] referenced; // true if the page was used since the clock hand last passed
+  private boolean[] prefetchedUnused; // true if the page was read ahead and not pinned yet
+  private int unusedPrefetches; // number of frames read ahead and not pinned yet
+  private int hand; // next frame the clock sweep looks at
+  private HashMap<Integer, Integer> framesByPage; // frame of each page in the pool
+  private byte[] zeros; // a page of zeros
+
+  private long hits; // pins of pages already in the pool
+  private long misses; // pins that had to read their page
+  private long prefetchedPages; // pages read ahead by prefetch
+  private long prefetchReads; // reads of runs of pages by prefetch
+  private long writes; // pages written back
+
+  /**
+   * Opens the pages of a file, creating it if needed.
+   *
+   * @param file the file
+   * @param pageSize bytes per page, a power of two from 256 to 1 MB
+   * @param poolPages number of frames of the buffer pool, at least 16
+   * @throws IOException if the file cannot be opened
+   */
+  public FilePageStore(File file, int pageSize, int poolPages) throws IOException {
+    this(FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE), pageSize, poolPages);
+  }
+
+  private FilePageStore(FileChannel channel, int pageSize, int poolPages) throws IOException {
+    if (pageSize < 256 || pageSize > (1 << OffHeapArena.DEFAULT_CHUNK_BITS)
+        || Integer.bitCount(pageSize) != 1) {
+      channel.close();
+      throw new IllegalArgumentException("Invalid page size: " + pageSize);
+    }
+    if (poolPages < MIN_POOL_PAGES) {
+      channel.close();
+      throw new IllegalArgumentException("Buffer pool too small: " + poolPages);
+    }
+    this.channel = channel;
+    this.pageSize = pageSize;
+    pageCount = (int) ((channel.size() + pageSize - 1) / pageSize);
+    frameMemory = new OffHeapArena();
+    frameMemory.ensureCapacity((long) poolPages * pageSize);
+    frames = new ByteBuffer[poolPages];
+    for (int f = 0; f < poolPages; f++) {
+      frames[f] = frameMemory.slice((long) f * pageSize, pageSize);
+    }
+    framePages = new int[poolPages];
+    Arrays.fill(framePages, NO_PAGE);
+    pinCounts = new int[poolPages];
+    dirty = new boolean[poolPages];
+    referenced = new boolean[poolPages];
+    prefetchedUnused = new boolean[poolPages];
+    framesByPage = new HashMap<>();
+    zeros = new byte[pageSize];
+  }
+
+  /**
+   * Creates a store in a new temporary file of a directory, deleted when the store is closed.
+   *
+   * @param directory where the file goes
+   * @param prefix start of the name of the file
+   * @param poolPages number of 4 KB frames of the buffer pool, at least 16
+   * @return the store
+   * @throws IOException if the file cannot be created
+   */
+  public static FilePageStore createTemporary(File directory, String prefix, int poolPages)
+      throws IOException {
+    File file = File.createTempFile(prefix + "-", ".idx", directory);
+    FilePageStore store = new FilePageStore(FileChannel.open(file.toPath(),
+        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE),
+        OffHeapPageStore.DEFAULT_PAGE_SIZE, poolPages);
+    store.temporary = true;
+    return store;
+  }
+
+  @Override
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  @Override
+  public synchronized int getPageCount() {
+    return pageCount;
+  }
+
+  @Override
+  public synchronized int allocatePage() {
+    int page = pageCount++;
+    int frame = evict();
+    frames[frame].put(0, zeros);
+    assign(frame, page);
+    dirty[frame] = true;
+    return page;
+  }
+
+  @Override
+  public synchronized ByteBuffer pin(int page) {
+    if (page < 0 || page >= pageCount) {
+      throw new IndexOutOfBoundsException("Page " + page + " of " + pageCount);
+    }
+    Integer frame = framesByPage.get(page);
+    if (frame != null) {
+      hits++;
+      if (prefetchedUnused[frame]) {
+        prefetchedUnused[frame] = false;
+        unusedPrefetches--;
+      }
+    } else {
+      misses++;
+      frame = evict();
+      read(page, frames[frame]);
+      assign(frame, page);
+    }
+    pinCounts[frame]++;
+    referenced[frame] = true;
+    return frames[frame];
+  }
+
+  @Override
+  public synchronized void unpin(int page, boolean dirty) {
+    Integer frame = framesByPage.get(page);
+    if (frame == null || pinCounts[frame] == 0) {
+      throw new IllegalStateException("Page " + page + " is not pinned");
+    }
+    pinCounts[frame]--;
+    if (dirty) {
+      this.dirty[frame] = true;
+    }
+  }
+
+  /**
+   * Reads pages ahead into the pool, sorted and grouped into runs of consecutive pages that are
+   * each read at once. Pages already in the pool are skipped, and at most a quarter of the pool
+   * holds pages read ahead that were not pinned yet, so they are not evicted before they are used.
+   */
+  @Override
+  public synchronized int prefetch(int[] pages, int from, int to) {
+    int room = frames.length / 4 - unusedPrefetches;
+    if (room <= 0) {
+      return from;
+    }
+    int[] missing = new int[Math.min(to - from, room)];
+    int count = 0;
+    int i = from;
+    for (; i < to && count < missing.length; i++) {
+      if (pages[i] >= 0 && pages[i] < pageCount && !framesByPage.containsKey(pages[i])) {
+        missing[count++] = pages[i];
+      }
+    }
+    Arrays.sort(missing, 0, count);
+    for (int start = 0; start < count; ) {
+      int end = start + 1;
+      while (end < count && missing[end] == missing[end - 1] + 1) {
+        end++;
+      }
+      readRun(missing[start], end - start);
+      start = end;
+    }
+    return i;
+  }
+
+  /**
+   * Reads consecutive pages into the pool with a single scattering read into their frames.
+   */
+  private void readRun(int firstPage, int length) {
+    int[] runFrames = new int[length];
+    ByteBuffer[] targets = new ByteBuffer[length];
+    for (int i = 0; i < length; i++) {
+      runFrames[i] = evict();
+      frames[runFrames[i]].put(0, zeros);
+      assign(runFrames[i], firstPage + i);
+      pinCounts[runFrames[i]]++;
+      targets[i] = frames[runFrames[i]].duplicate().clear();
+    }
+    try {
+      channel.position((long) firstPage * pageSize);
+      while (targets[length - 1].hasRemaining() && channel.read(targets) >= 0) {
+        // read until the run is full or the file ends
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      for (int frame : runFrames) {
+        pinCounts[frame]--;
+        referenced[frame] = true;
+        prefetchedUnused[frame] = true;
+      }
+    }
+    unusedPrefetches += length;
+    prefetchedPages += length;
+    prefetchReads++;
+  }
+
+  /**
+   * Frees a frame with the clock sweep, writing its page back if it is dirty.
+   *
+   * @return the free frame
+   * @throws IllegalStateException if every frame is pinned
+   */
+  private int evict() {
+    for (int step = 0; step <= 2 * frames.length; step++) {
+      int frame = hand;
+      hand = (hand + 1) % frames.length;
+      if (pinCounts[frame] > 0) {
+        continue;
+      }
+      if (referenced[frame]) {
+        referenced[frame] = false;
+        continue;
+      }
+      if (prefetchedUnused[frame]) {
+        prefetchedUnused[frame] = false;
+        unusedPrefetches--;
+      }
+      if (framePages[frame] != NO_PAGE) {
+        if (dirty[frame]) {
+          write(frame);
+        }
+        framesByPage.remove(framePages[frame]);
+        framePages[frame] = NO_PAGE;
+      }
+      return frame;
+    }
+    throw new IllegalStateException("All " + frames.length + " buffer pool frames are pinned");
+  }
+
+  /**
+   * Records that a frame holds a clean, unpinned page.
+   */
+  private void assign(int frame, int page) {
+    framePages[frame] = page;
+    framesByPage.put(page, frame);
+    pinCounts[frame] = 0;
+    dirty[frame] = false;
+    referenced[frame] = false;
+  }
+
+  /**
+   * Reads a page from the file into a frame, as zeros past the end of the file.
+   */
+  private void read(int page, ByteBuffer frame) {
+    frame.put(0, zeros);
+    ByteBuffer target = frame.duplicate().clear();
+    try {
+      long position = (long) page * pageSize;
+      while (target.hasRemaining()
+          && channel.read(target, position + target.position()) >= 0) {
+        // read until the page is full or the file ends
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Writes the page of a frame back to the file.
+   */
+  private void write(int frame) {
+    ByteBuffer source = frames[frame].duplicate().clear();
+    try {
+      long position = (long) framePages[frame] * pageSize;
+      while (source.hasRemaining()) {
+        channel.write(source, position + source.position());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    dirty[frame] = false;
+    writes++;
+  }
+
+  /**
+   * Writes every dirty page back to the file and forces it to the disk.
+   */
+  @Override
+  public synchronized void flush() {
+    for (int frame = 0; frame < frames.length; frame++) {
+      if (framePages[frame] != NO_PAGE && dirty[frame]) {
+        write(frame);
+      }
+    }
+    try {
+      channel.force(false);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Gets the number of frames of the buffer pool.
+   *
+   * @return the pool size in pages
+   */
+  public int getPoolPages() {
+    return frames.length;
+  }
+
+  /**
+   * Gets the number of pins answered from the pool.
+   *
+   * @return the number of hits
+   */
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of pins that had to read their page from the file.
+   *
+   * @return the number of misses
+   */
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Gets the number of pages read ahead.
+   *
+   * @return the number of prefetched pages
+   */
+  public synchronized long getPrefetchCount() {
+    return prefetchedPages;
+  }
+
+  /**
+   * Gets the number of reads prefetch needed for the pages it read ahead.
+   *
+   * @return the number of reads
+   */
+  public synchronized long getPrefetchReadCount() {
+    return prefetchReads;
+  }
+
+  /**
+   * Gets the number of pages written back to the file.
+   *
+   * @return the number of writes
+   */
+  public synchronized long getWriteCount() {
+    return writes;
+  }
+
+  /**
+   * Writes the dirty pages back, closes the file and releases the pool. The pages of a temporary
+   * store are dropped instead, as its file is deleted.
+   */
+  @Override
+  public synchronized void close() {
+    if (!channel.isOpen()) {
+      return;
+    }
+    try {
+      if (!temporary) {
+        flush();
+      }
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      frameMemory.close();
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "FilePageStore [pages=" + pageCount + ", poolPages=" + frames.length + ", hits=" + hits
+        + ", misses=" + misses + ", prefetched=" + prefetchedPages + " in " + prefetchReads
+        + " reads, writes=" + writes + "]";
+  }
+}
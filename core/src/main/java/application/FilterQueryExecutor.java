@@ -0,0 +1,111 @@
+package application;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs filter queries against the food data on a background thread. Every submitted query
+ * supersedes the previous one: a query that has not started yet is dropped, and the result of a
+ * query that is already running is never published. Submitting with a delay debounces bursts of
+ * queries such as keystrokes, since only the last one of the burst gets to run.
+ */
+public class FilterQueryExecutor {
+
+  private FoodData foodData; // the food database
+
+  private Executor resultExecutor; // runs the result callbacks, e.g. on the UI thread
+
+  private ScheduledExecutorService queryExecutor; // runs the queries, one at a time
+
+  private AtomicLong generation; // id of the latest submitted query
+
+  private ScheduledFuture<?> pendingQuery; // the latest submitted query, null if none
+
+  /**
+   * Public constructor.
+   *
+   * @param foodData the food data to query
+   * @param resultExecutor executor that receives the results, e.g. Platform::runLater
+   */
+  public FilterQueryExecutor(FoodData foodData, Executor resultExecutor) {
+    this.foodData = foodData;
+    this.resultExecutor = resultExecutor;
+    generation = new AtomicLong();
+    queryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "filter-query-executor");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Submits a query, superseding any previously submitted one.
+   *
+   * @param query the query to run
+   * @param delayMillis how long to wait for a newer query before running this one
+   * @param onResult receives the filtered food items through the result executor
+   */
+  public synchronized void submit(FoodQuery query, long delayMillis,
+      Consumer<List<FoodItem>> onResult) {
+    long id = generation.incrementAndGet();
+    if (pendingQuery != null) {
+      pendingQuery.cancel(false);
+    }
+    pendingQuery = queryExecutor.schedule(() -> runQuery(id, query, onResult), delayMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Drops the latest submitted query, its result will not be published.
+   */
+  public synchronized void cancel() {
+    generation.incrementAndGet();
+    if (pendingQuery != null) {
+      pendingQuery.cancel(false);
+      pendingQuery = null;
+    }
+  }
+
+  /**
+   * Stops the background thread. Queries submitted afterwards are rejected.
+   */
+  public void shutdown() {
+    cancel();
+    queryExecutor.shutdownNow();
+  }
+
+  /**
+   * Runs a query and publishes its result unless it has been superseded meanwhile.
+   *
+   * @param id generation of the query
+   * @param query the query
+   * @param onResult receives the filtered food items
+   */
+  private void runQuery(long id, FoodQuery query, Consumer<List<FoodItem>> onResult) {
+    if (generation.get() != id) {
+      return;
+    }
+    List<FoodItem> result;
+    try {
+      result = foodData.filter(query);
+    } catch (RuntimeException e) {
+      System.out.println(e);
+      return;
+    }
+    if (generation.get() != id) {
+      return;
+    }
+    resultExecutor.execute(() -> {
+      // a newer query may have been submitted while this result was waiting
+      if (generation.get() == id) {
+        onResult.accept(result);
+      }
+    });
+  }
+}
@@ -0,0 +1,1378 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Scanner;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * This class represents the backend for managing all the operations associated with FoodItems.
+ *
+ * Queries and getters hold the read lock of the food data, so queries from several threads run
+ * concurrently, while adding or loading food items holds the write lock.
+ *
+ * close() closes the nutrient indexes, deleting their files when they are on disk, after which
+ * the food data can no longer be queried.
+ *
+ * @author sapan (sapan@cs.wisc.edu)
+ */
+public class FoodData implements FoodDataADT<FoodItem>, AutoCloseable {
+
+  // List of all the food items. The position of an item in this list is its row id.
+  private List<FoodItem> foodItemList;
+
+  // Map of nutrients and their corresponding index of row ids
+  private HashMap<String, NutrientIndex> indexes;
+
+  // Directory of the index files, or null to keep the indexes on the heap
+  private File indexDirectory;
+
+  // Number of pages of the buffer pool of each index file
+  private int bufferPoolPages;
+
+  // Value of every nutrient of every row, indexed by Nutrient.ordinal() and then by row id
+  private double[][] nutrientColumns;
+
+  // Row id of every food item
+  private IdentityHashMap<FoodItem, Integer> rowsByFoodItem;
+
+  // Distinct names ignoring case, and the code of the name of every row in it
+  private NameDictionary names;
+  private int[] nameCodes;
+
+  // Id of every row, and the row of every id
+  private IdIndex ids;
+
+  // Cache of query results, kept up to date when food items are added
+  private QueryCache queryCache;
+
+  // Log of the queries slower than its threshold, or null
+  private SlowQueryLog slowQueryLog;
+
+  // Read lock for queries and getters, write lock for adding and loading food items
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private boolean closed; // true once the indexes are closed
+
+  // The nutrients every food item has, in the order of the data file
+  private static final String[] NUTRIENTS = {"calories", "fat", "carbohydrate", "fiber", "protein"};
+
+  // Bounds of the query result cache
+  private static final int QUERY_CACHE_MAX_ENTRIES = 64;
+  private static final long QUERY_CACHE_MAX_BYTES = 16L * 1024 * 1024;
+
+  // The regex for matching a line in the food data file
+  static final String DATA_FORMAT_PATTERN =
+      "[a-zA-Z0-9]*,[a-zA-Z0-9_]*,calories,(\\d*\\.)?\\d+,fat,(\\d*\\.)?\\d+,carbohydrate,(\\d*\\.)?\\d+,fiber,(\\d*\\.)?\\d+,protein,(\\d*\\.)?\\d+";
+
+
+  // Cost of a row matched by an index walk relative to a row read by a column scan
+  private static final double INDEX_TO_SCAN_COST_RATIO = 50.0;
+
+  // Share of the rows that the range searches of the rules of a batch on one nutrient must
+  // together read for filterBatch to walk the whole index once instead
+  private static final double SWEEP_MIN_SELECTIVITY = 1.0;
+
+  // Access path of the flight recorder events of the queries answered by filterBatch
+  private static final String BATCH_ACCESS_PATH = "BATCH";
+
+  // Number of parsed food items handed to a LoadListener at a time
+  private static final int LOAD_BATCH_SIZE = 1000;
+
+  /**
+   * Listener of a food item load running in the background, see
+   * {@link FoodData#loadFoodItems(String, LoadListener)}.
+   */
+  public interface LoadListener {
+
+    /**
+     * Called from the loading thread with each batch of parsed food items.
+     *
+     * @param foodItems the food items parsed since the last batch
+     * @param bytesRead number of bytes of the file parsed so far
+     * @param totalBytes size of the file in bytes
+     */
+    void foodItemsParsed(List<FoodItem> foodItems, long bytesRead, long totalBytes);
+
+    /**
+     * Polled from the loading thread between batches.
+     *
+     * @return true to stop loading and keep the current food items
+     */
+    boolean isCancelled();
+  }
+
+
+  /**
+   * The ways the nutrient rules of a query can be evaluated.
+   */
+  public enum AccessPath {
+    INDEX, // walk the nutrient indexes and intersect the matches of each rule
+    SCAN // scan the nutrient columns of every candidate row
+  }
+
+  /**
+   * A BPTree of the heap used as a nutrient index.
+   */
+  private static class HeapIndex extends BPTree<Double, Integer> implements NutrientIndex {
+
+    HeapIndex(int branchingFactor) {
+      super(branchingFactor);
+    }
+
+    @Override
+    public int visitRange(double key, String comparator, IntConsumer visitor) {
+      return rangeSearch(key, comparator, row -> visitor.accept(row));
+    }
+
+    @Override
+    public void close() {
+      // collected with the food data
+    }
+  }
+
+  /**
+   * Public constructor. The nutrient indexes are kept on disk if the system property
+   * foodquery.indexDirectory names a directory, see {@link #fromFile(String, File, int)}.
+   */
+  public FoodData() {
+    this(true, indexDirectoryProperty(), bufferPoolPagesProperty());
+    FoodDataMetrics.watch(this);
+  }
+
+  /**
+   * Creates empty food data, optionally loading the default food item file.
+   *
+   * @param loadDefaultFile true to load foodItems.csv
+   * @param indexDirectory directory of the index files, null to keep the indexes on the heap
+   * @param bufferPoolPages number of pages of the buffer pool of each index file
+   */
+  private FoodData(boolean loadDefaultFile, File indexDirectory, int bufferPoolPages) {
+    this.indexDirectory = indexDirectory;
+    this.bufferPoolPages = bufferPoolPages;
+    queryCache = new QueryCache(QUERY_CACHE_MAX_ENTRIES, QUERY_CACHE_MAX_BYTES);
+    slowQueryLog = loadDefaultFile ? SlowQueryLog.fromSystemProperties() : null;
+    foodItemList = new ArrayList<>();
+    indexes = new HashMap<>();
+    for (String nutrient : NUTRIENTS) {
+      indexes.put(nutrient, newIndex(nutrient));
+    }
+    nutrientColumns = new double[Nutrient.values().length][16];
+    rowsByFoodItem = new IdentityHashMap<>();
+    names = new NameDictionary();
+    nameCodes = new int[16];
+    ids = new IdIndex();
+    if (loadDefaultFile) {
+      loadFoodItems("foodItems.csv");
+    }
+  }
+
+  /**
+   * Creates an empty index for a nutrient: a BPTree, or a PagedBPTree in a new file of the index
+   * directory that is deleted when the index is closed.
+   *
+   * @param nutrient the nutrient
+   * @return the index
+   * @throws UncheckedIOException if the index file cannot be created
+   */
+  private NutrientIndex newIndex(String nutrient) {
+    if (indexDirectory == null) {
+      return new HeapIndex(3);
+    }
+    try {
+      return new PagedBPTree(
+          FilePageStore.createTemporary(indexDirectory, nutrient, bufferPoolPages));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Gets the index directory named by the system property foodquery.indexDirectory.
+   *
+   * @return the directory, or null if the property is not set
+   */
+  private static File indexDirectoryProperty() {
+    String directory = System.getProperty("foodquery.indexDirectory");
+    return directory == null ? null : new File(directory);
+  }
+
+  /**
+   * Gets the buffer pool size set by the system property foodquery.bufferPoolPages.
+   *
+   * @return the number of pages of the buffer pool of each index file
+   */
+  private static int bufferPoolPagesProperty() {
+    return Integer.getInteger("foodquery.bufferPoolPages", FilePageStore.DEFAULT_POOL_PAGES);
+  }
+
+  /**
+   * Appends a food item to the list of food items, its nutrient values to the nutrient columns
+   * and its row id to every index.
+   *
+   * @param foodItem the food item
+   * @return row id of the food item
+   * @throws IllegalArgumentException if another food item has the same id
+   */
+  private int insertFoodItem(FoodItem foodItem) {
+    if (ids.getRow(foodItem.getID()) >= 0) {
+      throw new IllegalArgumentException("Duplicate id: " + foodItem.getID());
+    }
+    int row = foodItemList.size();
+    ids.add(foodItem.getID());
+    foodItemList.add(foodItem);
+    rowsByFoodItem.put(foodItem, row);
+    if (row == nutrientColumns[0].length) {
+      for (int i = 0; i < nutrientColumns.length; i++) {
+        nutrientColumns[i] = Arrays.copyOf(nutrientColumns[i], row * 2);
+      }
+      nameCodes = Arrays.copyOf(nameCodes, row * 2);
+    }
+    nameCodes[row] = names.encode(foodItem.getName());
+    for (Nutrient nutrient : Nutrient.values()) {
+      nutrientColumns[nutrient.ordinal()][row] = foodItem.getNutrientValue(nutrient.getKey());
+    }
+    long start = FoodDataMetrics.start();
+    for (String nutrient : NUTRIENTS) {
+      indexes.get(nutrient).insert(foodItem.getNutrientValue(nutrient), row);
+    }
+    FoodDataMetrics.record(FoodDataMetrics.Operation.INDEX_INSERT, start);
+    return row;
+  }
+
+
+  /*
+   * (non-Javadoc) - load food items from an input file
+   * 
+   * @see skeleton.FoodDataADT#loadFoodItems(java.lang.String)
+   */
+  @Override
+  public void loadFoodItems(String filePath) {
+    loadFoodItems(filePath, null);
+  }
+
+  /**
+   * Loads the food items of a file, see {@link #loadFoodItems(String)}. The file is parsed and
+   * indexed into a new data set while the current food items stay available to queries from
+   * other threads. The new data set replaces the current one in a single step once indexing is
+   * done, so this can run on a background thread.
+   *
+   * @param filePath path of the food item data file
+   * @param listener notified of the parsed food items and polled for cancellation, may be null
+   * @return true, if the food items were loaded; false if loading failed or was cancelled
+   * @throws IllegalStateException if the food data was closed
+   */
+  public boolean loadFoodItems(String filePath, LoadListener listener) {
+    FoodDataEvents.Load event = new FoodDataEvents.Load();
+    event.begin();
+    long start = FoodDataMetrics.start();
+    File file = new File(filePath);
+    FoodData loaded = parseFoodItems(file, listener);
+    if (loaded != null) {
+      HashMap<String, NutrientIndex> replaced;
+      boolean wasClosed;
+      lock.writeLock().lock();
+      try {
+        // closed food data takes no new indexes, the loaded ones are dropped instead
+        wasClosed = closed;
+        replaced = wasClosed ? loaded.indexes : indexes;
+        if (!wasClosed) {
+          foodItemList = loaded.foodItemList;
+          indexes = loaded.indexes;
+          nutrientColumns = loaded.nutrientColumns;
+          rowsByFoodItem = loaded.rowsByFoodItem;
+          names = loaded.names;
+          nameCodes = loaded.nameCodes;
+          ids = loaded.ids;
+          queryCache.clear();
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+      // no query can reach the replaced indexes anymore, and closing them may delete files
+      for (NutrientIndex index : replaced.values()) {
+        index.close();
+      }
+      if (wasClosed) {
+        throw new IllegalStateException("Food data is closed");
+      }
+      FoodDataMetrics.record(FoodDataMetrics.Operation.LOAD, start);
+    }
+    if (event.shouldCommit()) {
+      event.path = filePath;
+      event.rowCount = loaded == null ? 0 : loaded.foodItemList.size();
+      event.bytes = file.length();
+      event.succeeded = loaded != null;
+      event.commit();
+    }
+    return loaded != null;
+  }
+
+  /**
+   * Parses and indexes the food items of a file into new food data, with indexes kept where the
+   * indexes of this food data are.
+   *
+   * @param file the food item data file
+   * @param listener notified of the parsed food items and polled for cancellation, may be null
+   * @return the new food data, or null if loading failed or was cancelled
+   */
+  private FoodData parseFoodItems(File file, LoadListener listener) {
+    FoodData loaded;
+    try {
+      loaded = new FoodData(false, indexDirectory, bufferPoolPages);
+    } catch (UncheckedIOException e) {
+      System.out.println(e);
+      return null;
+    }
+    if (!loaded.parseInto(file, listener)) {
+      for (NutrientIndex index : loaded.indexes.values()) {
+        index.close();
+      }
+      return null;
+    }
+    return loaded;
+  }
+
+  /**
+   * Parses the food items of a file and inserts them into this food data, which is not shared
+   * yet.
+   *
+   * @param file the food item data file
+   * @param listener notified of the parsed food items and polled for cancellation, may be null
+   * @return true, if the whole file was parsed
+   */
+  private boolean parseInto(File file, LoadListener listener) {
+    try (Scanner scanner = new Scanner(file);) {
+      List<FoodItem> batch = new ArrayList<>();
+      long bytesRead = 0;
+      int duplicates = 0;
+
+      FoodItem newFood;
+      while (scanner.hasNext()) {
+        String line = scanner.next();
+        bytesRead += line.length() + 1;
+        if (line.matches(DATA_FORMAT_PATTERN)) {
+          String[] lineSplit = line.split(",");
+          if (ids.getRow(lineSplit[0]) >= 0) {
+            duplicates++;
+            continue;
+          }
+          newFood = new FoodItem(lineSplit[0], lineSplit[1]);
+          for (int i = 2; i < lineSplit.length; i += 2) {
+            newFood.addNutrient(lineSplit[i], Double.valueOf(lineSplit[i + 1]));
+          }
+          insertFoodItem(newFood);
+          batch.add(newFood);
+        }
+        if (listener != null && batch.size() == LOAD_BATCH_SIZE) {
+          if (listener.isCancelled()) {
+            return false;
+          }
+          listener.foodItemsParsed(batch, bytesRead, file.length());
+          batch = new ArrayList<>();
+        }
+      }
+      if (listener != null) {
+        if (listener.isCancelled()) {
+          return false;
+        }
+        listener.foodItemsParsed(batch, file.length(), file.length());
+      }
+      if (duplicates > 0) {
+        System.err.println("Skipped " + duplicates + " food items with duplicate ids");
+      }
+    } catch (Exception e) {
+      System.out.println(e);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Creates food data holding only the food items of a file, without loading the default file
+   * first. Meant for tools that run without the GUI.
+   *
+   * @param filePath path of the food item data file
+   * @return the food data, or null if the file could not be loaded
+   */
+  public static FoodData fromFile(String filePath) {
+    return fromFile(filePath, indexDirectoryProperty(), bufferPoolPagesProperty());
+  }
+
+  /**
+   * Creates food data holding only the food items of a file, see {@link #fromFile(String)}, with
+   * its nutrient indexes on disk. Each index is a PagedBPTree of 4 KB pages in a temporary file
+   * of the directory, read through a buffer pool of the given number of pages, so the indexes
+   * take the same memory whatever the size of the catalog.
+   *
+   * @param filePath path of the food item data file
+   * @param indexDirectory directory of the index files, null to keep the indexes on the heap
+   * @param bufferPoolPages number of pages of the buffer pool of each index, at least 16
+   * @return the food data, or null if the file could not be loaded
+   */
+  public static FoodData fromFile(String filePath, File indexDirectory, int bufferPoolPages) {
+    FoodData foodData;
+    try {
+      foodData = new FoodData(false, indexDirectory, bufferPoolPages);
+    } catch (UncheckedIOException | IllegalArgumentException e) {
+      System.out.println(e);
+      return null;
+    }
+    if (!foodData.loadFoodItems(filePath, null)) {
+      for (NutrientIndex index : foodData.indexes.values()) {
+        index.close();
+      }
+      return null;
+    }
+    foodData.slowQueryLog = SlowQueryLog.fromSystemProperties();
+    FoodDataMetrics.watch(foodData);
+    return foodData;
+  }
+
+  /*
+   * (non-Javadoc) - filter list of FoodItem according to given substring
+   * 
+   * @see skeleton.FoodDataADT#filterByName(java.lang.String)
+   */
+  @Override
+  public List<FoodItem> filterByName(String substring) {
+    return filter(substring, Collections.emptyList());
+  }
+
+  /*
+   * (non-Javadoc) - filter list of FoodItem according to given list of rules
+   * 
+   * @see skeleton.FoodDataADT#filterByNutrients(java.util.List)
+   */
+  @Override
+  public List<FoodItem> filterByNutrients(List<String> rules) {
+    return filter(null, rules);
+  }
+
+  /**
+   * Gets all the food items that have a name containing the substring and fulfill all the
+   * nutrient rules. Results are cached, so applying the same filters again is answered without
+   * touching the indexes.
+   *
+   * @param substring substring to be searched, null or empty for no name rule
+   * @param rules list of nutrient rules, see {@link #filterByNutrients(List)}
+   * @return list of filtered food items in the order they were added
+   */
+  public List<FoodItem> filter(String substring, List<String> rules) {
+    return filter(new FoodQuery(substring, rules));
+  }
+
+  /**
+   * Gets all the food items matching a compiled query, from the cache if possible.
+   *
+   * @param query the compiled query
+   * @return list of filtered food items in the order they were added
+   */
+  public List<FoodItem> filter(FoodQuery query) {
+    lock.readLock().lock();
+    try {
+      return getFoodItems(filterRows(query));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the row ids of all the food items matching the query, from the cache if possible.
+   *
+   * @param query the compiled query
+   * @return set of matching row ids
+   */
+  public BitSet filterRows(FoodQuery query) {
+    lock.readLock().lock();
+    try {
+      FoodDataEvents.Filter event = new FoodDataEvents.Filter();
+      event.begin();
+      BitSet rows = queryCache.get(query);
+      AccessPath path = null;
+      if (rows == null) {
+        long start = System.nanoTime();
+        path = choosePath(query);
+        // the steps are recorded as the query runs, in case it turns out to be slow
+        QueryPlan plan = slowQueryLog == null ? null : newPlan(query, path);
+        rows = evaluate(query, path, plan);
+        queryCache.put(query, rows);
+        long elapsed = System.nanoTime() - start;
+        if (plan != null && slowQueryLog.isSlow(elapsed)) {
+          plan.setResult(rows.cardinality(), elapsed);
+          slowQueryLog.log(elapsed, plan);
+        }
+      }
+      commitFilter(event, query, rows, path == null ? "" : path.name());
+      return rows;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Completes the flight recorder event of a query, if it is being recorded.
+   *
+   * @param event the event, begun before the query
+   * @param query the compiled query
+   * @param rows the rows matching the query
+   * @param accessPath how the nutrient rules were evaluated, empty if the result was cached
+   */
+  private void commitFilter(FoodDataEvents.Filter event, FoodQuery query, BitSet rows,
+      String accessPath) {
+    if (event.shouldCommit()) {
+      boolean hasNameRule = query.getNameSubstring() != null;
+      event.operation = !hasNameRule ? "filterByNutrients"
+          : query.getRuleCount() == 0 ? "filterByName" : "filter";
+      event.ruleCount = query.getRuleCount();
+      event.rowCount = foodItemList.size();
+      event.matchCount = rows.cardinality();
+      event.selectivity = event.rowCount == 0 ? 0.0 : (double) event.matchCount / event.rowCount;
+      event.cached = accessPath.isEmpty();
+      event.accessPath = accessPath;
+      event.commit();
+    }
+  }
+
+  /**
+   * Evaluates a query on the given access path, bypassing the cache. Meant for comparing the
+   * access paths; queries should go through {@link #filterRows(FoodQuery)}.
+   *
+   * @param query the compiled query
+   * @param path the access path to use
+   * @return set of matching row ids
+   */
+  public BitSet executeQuery(FoodQuery query, AccessPath path) {
+    lock.readLock().lock();
+    try {
+      return evaluate(query, path, null);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Evaluates a query on the given access path, recording each step in a plan if one is given.
+   *
+   * @param query the compiled query
+   * @param path the access path to use
+   * @param plan receives the name step and a step per nutrient rule evaluated, may be null
+   * @return set of matching row ids
+   */
+  private BitSet evaluate(FoodQuery query, AccessPath path, QueryPlan plan) {
+    checkOpen();
+    long start = FoodDataMetrics.start();
+    long stepStart = System.nanoTime();
+    BitSet rows = nameRows(query);
+    if (plan != null) {
+      plan.setNameStep(rows.cardinality(), System.nanoTime() - stepStart);
+    }
+    long rowsScanned = query.getNameSubstring() != null ? foodItemList.size() : 0;
+    if (path == AccessPath.SCAN) {
+      long scanStart = FoodDataMetrics.start();
+      rows = plan == null ? ColumnScan.filter(nutrientColumns, foodItemList.size(), query, rows)
+          : scanRules(query, rows, plan);
+      FoodDataMetrics.record(FoodDataMetrics.Operation.COLUMN_SCAN, scanStart);
+      rowsScanned += (long) foodItemList.size() * query.getRuleCount();
+    } else {
+      rowsScanned += intersectRules(query, rows, plan);
+    }
+    FoodDataMetrics.recordQuery(start, rowsScanned, rows);
+    return rows;
+  }
+
+  /**
+   * Creates the plan of a query with the estimates of the planner, before any step is recorded.
+   *
+   * @param query the compiled query
+   * @param path the access path chosen for it
+   * @return the plan
+   */
+  private QueryPlan newPlan(FoodQuery query, AccessPath path) {
+    double estimatedSelectivity = 0.0;
+    for (int i = 0; i < query.getRuleCount(); i++) {
+      estimatedSelectivity += estimateSelectivity(query, i);
+    }
+    return new QueryPlan(query, foodItemList.size(), path, estimatedSelectivity);
+  }
+
+  /**
+   * Estimates the share of rows satisfying a rule of a query from a sample of its column.
+   *
+   * @param query the compiled query
+   * @param i index of the rule
+   * @return the estimated selectivity, between 0 and 1
+   */
+  private double estimateSelectivity(FoodQuery query, int i) {
+    return ColumnScan.estimateSelectivity(
+        nutrientColumns[ColumnScan.getNutrient(query, i).ordinal()], foodItemList.size(),
+        query.getComparator(i), query.getValue(i));
+  }
+  /**
+   * Chooses how to evaluate the nutrient rules of a query. The index path costs in proportion to
+   * the rows each rule matches, while the scan path reads every row once per rule at a much
+   * lower cost per row. The share of rows matched by each rule is estimated from a sample of
+   * its column, and the scan is chosen when the rules together match enough of the catalog.
+   *
+   * @param query the compiled query
+   * @return the cheaper access path
+   */
+  public AccessPath choosePath(FoodQuery query) {
+    lock.readLock().lock();
+    try {
+      if (query.getRuleCount() == 0) {
+        return AccessPath.INDEX;
+      }
+      double selectivity = 0.0;
+      for (int i = 0; i < query.getRuleCount(); i++) {
+        selectivity += estimateSelectivity(query, i);
+      }
+      return selectivity * INDEX_TO_SCAN_COST_RATIO > query.getRuleCount() ? AccessPath.SCAN
+          : AccessPath.INDEX;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Evaluates a query step by step on the access path chosen by the planner, bypassing the cache,
+   * and reports for each step what was read and how long it took. On the index path, the range
+   * search of each rule reports its actual cardinality and the leaves it visits as it runs. The
+   * scan path does not read the indexes, so every rule is then also searched alone in its index
+   * to report them, and explaining such a query costs more than running it.
+   *
+   * @param query the compiled query
+   * @return the plan of the query
+   */
+  public QueryPlan explain(FoodQuery query) {
+    lock.readLock().lock();
+    try {
+      long start = System.nanoTime();
+      AccessPath path = choosePath(query);
+      QueryPlan plan = newPlan(query, path);
+      BitSet rows = evaluate(query, path, plan);
+      plan.setResult(rows.cardinality(), System.nanoTime() - start);
+      if (path == AccessPath.SCAN) {
+        List<QueryPlan.RuleStep> steps = plan.getRuleSteps();
+        for (int i = 0; i < steps.size(); i++) {
+          int[] matches = new int[1];
+          int leavesVisited = getIndex(query.getNutrient(i)).visitRange(query.getValue(i),
+              query.getComparator(i), row -> matches[0]++);
+          steps.get(i).setIndexSearch(matches[0], leavesVisited);
+        }
+      }
+      return plan;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the log of the slow queries.
+   *
+   * @return the log, or null if slow queries are not logged
+   */
+  public SlowQueryLog getSlowQueryLog() {
+    lock.readLock().lock();
+    try {
+      return slowQueryLog;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Logs the queries evaluated by {@link #filterRows(FoodQuery)} that reach the threshold of the
+   * log, with the plan recorded while they ran, see {@link #explain(FoodQuery)}.
+   *
+   * @param slowQueryLog the log, null to stop logging
+   */
+  public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+    lock.writeLock().lock();
+    try {
+      this.slowQueryLog = slowQueryLog;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the rows that do not satisfy every nutrient rule of a query, using the nutrient
+   * indexes.
+   *
+   * @param query the compiled query
+   * @param rows the candidate rows, e.g. those matching the name rule, updated in place
+   * @param plan receives a step per rule searched, may be null
+   * @return number of rows read from the indexes
+   */
+  private long intersectRules(FoodQuery query, BitSet rows, QueryPlan plan) {
+    long rowsScanned = 0;
+    for (int i = 0; i < query.getRuleCount() && !rows.isEmpty(); i++) {
+      long stepStart = System.nanoTime();
+      long start = FoodDataMetrics.start();
+      BitSet ruleRows = new BitSet(foodItemList.size());
+      int[] matches = new int[1];
+      int leavesVisited = getIndex(query.getNutrient(i)).visitRange(query.getValue(i),
+          query.getComparator(i), row -> {
+            ruleRows.set(row);
+            matches[0]++;
+          });
+      FoodDataMetrics.record(FoodDataMetrics.Operation.RANGE_SEARCH, start);
+      rowsScanned += matches[0];
+
+      start = FoodDataMetrics.start();
+      rows.and(ruleRows);
+      FoodDataMetrics.record(FoodDataMetrics.Operation.INTERSECTION, start);
+      if (plan != null) {
+        plan.addRuleStep(new QueryPlan.RuleStep(ruleKey(query, i), query.getNutrient(i) + " index",
+            Math.round(estimateSelectivity(query, i) * foodItemList.size()), matches[0],
+            leavesVisited, rows.cardinality(), System.nanoTime() - stepStart));
+      }
+    }
+    return rowsScanned;
+  }
+
+  /**
+   * Removes the rows that do not satisfy every nutrient rule of a query by scanning the nutrient
+   * columns one rule at a time, recording a step per rule. The indexes are not read, so the steps
+   * leave out the rows each rule matches alone and the leaves its index would visit.
+   *
+   * @param query the compiled query
+   * @param rows the candidate rows, e.g. those matching the name rule
+   * @param plan receives a step per rule
+   * @return the candidate rows that satisfy every nutrient rule
+   */
+  private BitSet scanRules(FoodQuery query, BitSet rows, QueryPlan plan) {
+    for (int i = 0; i < query.getRuleCount(); i++) {
+      FoodQuery rule = new FoodQuery(null, Collections.singletonList(ruleKey(query, i)));
+      long stepStart = System.nanoTime();
+      rows = ColumnScan.filter(nutrientColumns, foodItemList.size(), rule, rows);
+      plan.addRuleStep(new QueryPlan.RuleStep(ruleKey(query, i), query.getNutrient(i) + " column",
+          Math.round(estimateSelectivity(query, i) * foodItemList.size()), -1, -1,
+          rows.cardinality(), System.nanoTime() - stepStart));
+    }
+    return rows;
+  }
+
+  /**
+   * Gets the rows matching the name rule of a query. The substring is matched once against each
+   * distinct name of the dictionary, then the rows are selected by the code of their name.
+   *
+   * @param query the compiled query
+   * @return set of row ids, all the rows if the query has no name rule
+   */
+  private BitSet nameRows(FoodQuery query) {
+    BitSet rows = new BitSet(foodItemList.size());
+    if (query.getNameSubstring() != null) {
+      long start = FoodDataMetrics.start();
+      BitSet codes = names.findCodes(query.getNameSubstring());
+      if (!codes.isEmpty()) {
+        for (int row = 0; row < foodItemList.size(); row++) {
+          if (codes.get(nameCodes[row])) {
+            rows.set(row);
+          }
+        }
+      }
+      FoodDataMetrics.record(FoodDataMetrics.Operation.NAME_SCAN, start);
+    } else {
+      rows.set(0, foodItemList.size());
+    }
+    return rows;
+  }
+
+  /**
+   * Gets the index of a nutrient.
+   *
+   * @param nutrient the lower-cased nutrient of a rule
+   * @return the index
+   * @throws IllegalArgumentException if there is no such nutrient
+   */
+  private NutrientIndex getIndex(String nutrient) {
+    NutrientIndex index = indexes.get(nutrient);
+    if (index == null) {
+      throw new IllegalArgumentException("Unknown nutrient: " + nutrient);
+    }
+    return index;
+  }
+
+  /**
+   * Tells whether every rule of a query is on a nutrient that has an index.
+   *
+   * @param query the compiled query
+   * @return false if a rule is on an unknown nutrient
+   */
+  private boolean hasIndexes(FoodQuery query) {
+    for (int i = 0; i < query.getRuleCount(); i++) {
+      if (!indexes.containsKey(query.getNutrient(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the row ids matching each query of a batch. Queries that are not cached are answered
+   * together: their rules are grouped by nutrient, and the rules on a nutrient are answered by a
+   * single walk along the leaf chain of its index when their range searches would together read
+   * at least as many entries as the index holds; otherwise each distinct rule is one range search.
+   * Each query gets its own result, and a query with a rule on an unknown nutrient gets null
+   * instead of failing the whole batch. Every answered query emits its own flight recorder
+   * Filter event, whose duration leaves out the index sweeps shared by the batch.
+   *
+   * @param queries the compiled queries
+   * @return set of matching row ids of each query in the order of the queries, null for the
+   *         queries on an unknown nutrient
+   */
+  public List<BitSet> filterBatch(List<FoodQuery> queries) {
+    lock.readLock().lock();
+    try {
+      checkOpen();
+      long start = FoodDataMetrics.start();
+      int rowCount = foodItemList.size();
+      List<BitSet> results = new ArrayList<>(queries.size());
+      // thresholds of the rules of the uncached queries, by nutrient
+      HashMap<String, TreeSet<Double>> thresholds = new HashMap<>();
+      // estimated share of the rows read by range searches for those rules, by nutrient
+      HashMap<String, Double> selectivities = new HashMap<>();
+      // the distinct rules of those queries
+      HashSet<String> distinctRules = new HashSet<>();
+      // queries answered from the cache or left out for an unknown nutrient
+      boolean[] done = new boolean[queries.size()];
+      for (int q = 0; q < queries.size(); q++) {
+        FoodQuery query = queries.get(q);
+        FoodDataEvents.Filter event = new FoodDataEvents.Filter();
+        event.begin();
+        BitSet rows = hasIndexes(query) ? queryCache.get(query) : null;
+        results.add(rows);
+        done[q] = rows != null || !hasIndexes(query);
+        if (rows != null) {
+          commitFilter(event, query, rows, "");
+        }
+        for (int i = 0; i < query.getRuleCount() && !done[q]; i++) {
+          String nutrient = query.getNutrient(i);
+          thresholds.computeIfAbsent(nutrient, key -> new TreeSet<>()).add(query.getValue(i));
+          if (distinctRules.add(ruleKey(query, i))) {
+            selectivities.merge(nutrient, estimateSelectivity(query, i), Double::sum);
+          }
+        }
+      }
+
+      HashMap<String, ThresholdSweep> sweeps = new HashMap<>();
+      // rows of the rules answered by a range search, by rule
+      HashMap<String, BitSet> searchedRules = new HashMap<>();
+      for (String nutrient : thresholds.keySet()) {
+        if (selectivities.get(nutrient) >= SWEEP_MIN_SELECTIVITY) {
+          sweeps.put(nutrient, new ThresholdSweep(indexes.get(nutrient), thresholds.get(nutrient)));
+        }
+      }
+
+      for (int q = 0; q < queries.size(); q++) {
+        if (done[q]) {
+          continue;
+        }
+        FoodQuery query = queries.get(q);
+        FoodDataEvents.Filter event = new FoodDataEvents.Filter();
+        event.begin();
+        BitSet rows = nameRows(query);
+        for (int i = 0; i < query.getRuleCount() && !rows.isEmpty(); i++) {
+          ThresholdSweep sweep = sweeps.get(query.getNutrient(i));
+          BitSet ruleRows;
+          if (sweep != null) {
+            ruleRows = sweep.getRows(query.getComparator(i), query.getValue(i));
+          } else {
+            ruleRows = searchedRules.get(ruleKey(query, i));
+            if (ruleRows == null) {
+              ruleRows = new BitSet(rowCount);
+              indexes.get(query.getNutrient(i)).visitRange(query.getValue(i),
+                  query.getComparator(i), ruleRows::set);
+              searchedRules.put(ruleKey(query, i), ruleRows);
+            }
+          }
+          rows.and(ruleRows);
+        }
+        queryCache.put(query, rows);
+        results.set(q, rows);
+        commitFilter(event, query, rows, BATCH_ACCESS_PATH);
+      }
+      FoodDataMetrics.record(FoodDataMetrics.Operation.BATCH, start);
+      return results;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the normalized form of a rule of a query, the same for equal rules of any query.
+   */
+  private static String ruleKey(FoodQuery query, int i) {
+    return query.getNutrient(i) + " " + query.getComparator(i) + " " + query.getValue(i);
+  }
+
+  /**
+   * The rows of an index up to each of a sorted set of thresholds, collected in a single walk
+   * along the leaf chain. Since the keys come in ascending order, the rows with a key up to a
+   * threshold are a prefix of the walk, so a running set of the rows seen so far is copied once
+   * per threshold as the walk passes it, and the rows equal to each threshold are kept aside.
+   * Every rule on the nutrient is then a prefix, the rows equal to a threshold, or all the rows
+   * but a prefix and those equal to its threshold.
+   */
+  private static class ThresholdSweep {
+    private double[] thresholds; // the distinct thresholds, ascending
+    private BitSet[] upTo; // rows with a key <= each threshold
+    private int[][] equal; // rows with a key == each threshold
+    private int[] equalCounts; // number of rows in each array of equal
+    private BitSet all; // all the rows of the index
+
+    ThresholdSweep(NutrientIndex index, TreeSet<Double> sortedThresholds) {
+      thresholds = new double[sortedThresholds.size()];
+      int t = 0;
+      for (double threshold : sortedThresholds) {
+        thresholds[t++] = threshold;
+      }
+      upTo = new BitSet[thresholds.length];
+      equal = new int[thresholds.length][];
+      equalCounts = new int[thresholds.length];
+      all = new BitSet();
+      int[] next = new int[1]; // next threshold the walk has not passed
+      index.forEachEntry((key, row) -> {
+        while (next[0] < thresholds.length && thresholds[next[0]] < key) {
+          upTo[next[0]++] = (BitSet) all.clone();
+        }
+        if (next[0] < thresholds.length && thresholds[next[0]] == key) {
+          addEqual(next[0], row);
+        }
+        all.set(row);
+      });
+      for ( ; next[0] < thresholds.length; next[0]++) {
+        upTo[next[0]] = all;
+      }
+    }
+
+    /**
+     * Adds a row to the rows equal to a threshold.
+     */
+    private void addEqual(int t, int row) {
+      if (equal[t] == null) {
+        equal[t] = new int[8];
+      } else if (equalCounts[t] == equal[t].length) {
+        equal[t] = Arrays.copyOf(equal[t], equal[t].length * 2);
+      }
+      equal[t][equalCounts[t]++] = row;
+    }
+
+    /**
+     * Gets the rows matching a rule. The returned set must not be modified.
+     *
+     * @param comparator the comparator of the rule
+     * @param threshold the value of the rule, one of the thresholds of the sweep
+     * @return set of matching row ids
+     */
+    BitSet getRows(String comparator, double threshold) {
+      int t = Arrays.binarySearch(thresholds, threshold);
+      if ("<=".equals(comparator)) {
+        return upTo[t];
+      }
+      BitSet rows;
+      if (">=".equals(comparator)) {
+        rows = (BitSet) all.clone();
+        rows.andNot(upTo[t]);
+      } else {
+        rows = new BitSet();
+      }
+      for (int i = 0; i < equalCounts[t]; i++) {
+        rows.set(equal[t][i]);
+      }
+      return rows;
+    }
+  }
+
+  /**
+   * Gets the k food items matching a query with the highest or lowest value of a nutrient. The
+   * matching rows are scanned once while a heap keeps the best k of them.
+   *
+   * @param query the compiled query
+   * @param nutrient the nutrient to rank by
+   * @param k the number of rows to return
+   * @param highest true for the highest values first, false for the lowest first
+   * @return row ids of the best k matching food items, best first, ties in row order
+   */
+  public int[] topRows(FoodQuery query, Nutrient nutrient, int k, boolean highest) {
+    lock.readLock().lock();
+    try {
+      if (k < 0) {
+        throw new IllegalArgumentException("Invalid k: " + k);
+      }
+      double[] column = nutrientColumns[nutrient.ordinal()];
+      // orders rows from best to worst
+      Comparator<Integer> order = (a, b) -> {
+        int c = highest ? Double.compare(column[b], column[a])
+            : Double.compare(column[a], column[b]);
+        return c != 0 ? c : Integer.compare(a, b);
+      };
+      PriorityQueue<Integer> worstFirst = new PriorityQueue<>(order.reversed());
+      BitSet rows = filterRows(query);
+      for (int row = rows.nextSetBit(0); row >= 0 && k > 0; row = rows.nextSetBit(row + 1)) {
+        if (worstFirst.size() < k) {
+          worstFirst.add(row);
+        } else if (order.compare(row, worstFirst.peek()) < 0) {
+          worstFirst.poll();
+          worstFirst.add(row);
+        }
+      }
+      int[] top = new int[worstFirst.size()];
+      for (int i = top.length - 1; i >= 0; i--) {
+        top[i] = worstFirst.poll();
+      }
+      return top;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the food items with the given row ids.
+   *
+   * @param rows set of row ids
+   * @return list of food items in row order
+   */
+  public List<FoodItem> getFoodItems(BitSet rows) {
+    lock.readLock().lock();
+    try {
+      List<FoodItem> foodItems = new ArrayList<>(rows.cardinality());
+      for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+        foodItems.add(foodItemList.get(row));
+      }
+      return foodItems;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the lock of the food data. Hold its read lock to make several calls see the same data
+   * set, e.g. to look up the food items of rows returned by a query while a load may be running.
+   *
+   * @return the lock
+   */
+  public ReadWriteLock getLock() {
+    return lock;
+  }
+
+  /**
+   * Gets the cache of query results, e.g. to read its hit, miss and eviction counters.
+   *
+   * @return the query cache
+   */
+  public QueryCache getQueryCache() {
+    return queryCache;
+  }
+
+  /*
+   * (non-Javadoc) - adds a food item to the foodItemList
+   * 
+   * @see skeleton.FoodDataADT#addFoodItem(skeleton.FoodItem)
+   */
+  @Override
+  public void addFoodItem(FoodItem foodItem) {
+    lock.writeLock().lock();
+    try {
+      checkOpen();
+      FoodDataEvents.AddFoodItem event = new FoodDataEvents.AddFoodItem();
+      event.begin();
+      int row = insertFoodItem(foodItem);
+      queryCache.rowAdded(row, foodItem);
+      event.row = row;
+      event.commit();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the number of levels of the index of a nutrient.
+   *
+   * @param nutrient the nutrient
+   * @return the height of its index
+   */
+  public int getIndexHeight(Nutrient nutrient) {
+    lock.readLock().lock();
+    try {
+      return indexes.get(nutrient.getKey()).getHeight();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Counts the nodes of the index of a nutrient.
+   *
+   * @param nutrient the nutrient
+   * @return the number of nodes of its index
+   */
+  public int getIndexNodeCount(Nutrient nutrient) {
+    lock.readLock().lock();
+    try {
+      return indexes.get(nutrient.getKey()).getNodeCount();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the number of food items.
+   *
+   * @return the number of rows
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return foodItemList.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the food item with the given row id.
+   *
+   * @param row the row id
+   * @return the food item
+   */
+  public FoodItem getFoodItem(int row) {
+    lock.readLock().lock();
+    try {
+      return foodItemList.get(row);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the id of the food item with the given row id from the packed ids.
+   *
+   * @param row the row id
+   * @return the id
+   */
+  public String getId(int row) {
+    lock.readLock().lock();
+    try {
+      return ids.getId(row);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the food item with the given id from the primary index.
+   *
+   * @param id the id
+   * @return the food item, or null if no food item has the id
+   */
+  public FoodItem getById(String id) {
+    lock.readLock().lock();
+    try {
+      int row = ids.getRow(id);
+      return row < 0 ? null : foodItemList.get(row);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the food items with the given ids, under a single lock.
+   *
+   * @param idList the ids
+   * @return the food item of each id in the order of the ids, null for the unknown ones
+   */
+  public List<FoodItem> getByIds(List<String> idList) {
+    lock.readLock().lock();
+    try {
+      List<FoodItem> foodItems = new ArrayList<>(idList.size());
+      for (String id : idList) {
+        int row = ids.getRow(id);
+        foodItems.add(row < 0 ? null : foodItemList.get(row));
+      }
+      return foodItems;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the row id of the food item with the given id.
+   *
+   * @param id the id
+   * @return the row id, or -1 if no food item has the id
+   */
+  public int getRowById(String id) {
+    lock.readLock().lock();
+    try {
+      return ids.getRow(id);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the name dictionary, holding every distinct lower-cased name of the food items once.
+   *
+   * @return the dictionary
+   */
+  public NameDictionary getNameDictionary() {
+    lock.readLock().lock();
+    try {
+      return names;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the row id of a food item.
+   *
+   * @param foodItem a food item of this food data
+   * @return the row id, or -1 if the food item is not part of the loaded data
+   */
+  public int getRow(FoodItem foodItem) {
+    lock.readLock().lock();
+    try {
+      Integer row = rowsByFoodItem.get(foodItem);
+      return row == null ? -1 : row;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the value of a nutrient for every row. The returned column is shared and must not be
+   * modified; it may be longer than the number of rows. Values of existing rows never change, so
+   * the column stays valid for those rows even after food items are added.
+   *
+   * @param nutrient the nutrient
+   * @return array of nutrient values indexed by row id
+   */
+  public double[] getNutrientColumn(Nutrient nutrient) {
+    lock.readLock().lock();
+    try {
+      return nutrientColumns[nutrient.ordinal()];
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Copies the nutrient columns, trimmed to the current number of rows. The copy is taken under
+   * a single lock, so it is a consistent snapshot even while food items are added or loaded.
+   *
+   * @return array of nutrient columns indexed by Nutrient.ordinal() and then by row id
+   */
+  public double[][] copyNutrientColumns() {
+    lock.readLock().lock();
+    try {
+      double[][] columns = new double[nutrientColumns.length][];
+      for (int i = 0; i < columns.length; i++) {
+        columns[i] = Arrays.copyOf(nutrientColumns[i], foodItemList.size());
+      }
+      return columns;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /*
+   * (non-Javadoc) - returns all the food items present in foodItemList
+   * 
+   * @see skeleton.FoodDataADT#getAllFoodItems()
+   */
+  @Override
+  public List<FoodItem> getAllFoodItems() {
+    lock.readLock().lock();
+    try {
+      return new ArrayList<>(foodItemList);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /*
+   * (non-Javadoc) - saved food items to an input file
+   * 
+   * @see application.FoodDataADT#saveFoodItems(java.lang.String)
+   */
+  @Override
+  public void saveFoodItems(String fileName) {
+    FoodDataEvents.Save event = new FoodDataEvents.Save();
+    event.begin();
+    long start = FoodDataMetrics.start();
+    // sort a copy, the position of an item in foodItemList is its row id
+    List<FoodItem> sortedFoodItemList = getAllFoodItems();
+    sortedFoodItemList.sort((FoodItem f1, FoodItem f2) -> f1.getName().compareTo(f2.getName()));
+    try (PrintWriter pw = new PrintWriter(new File(fileName));) {
+      StringBuilder sb = new StringBuilder();
+      for (FoodItem foodItem : sortedFoodItemList) {
+        sb.append(foodItem.getID()).append(",").append(foodItem.getName()).append(",")
+            .append("calories").append(",").append((int) foodItem.getNutrientValue("calories"))
+            .append(",").append("fat").append(",").append((int) foodItem.getNutrientValue("fat"))
+            .append(",").append("carbohydrate").append(",")
+            .append((int) foodItem.getNutrientValue("carbohydrate")).append(",").append("fiber")
+            .append(",").append((int) foodItem.getNutrientValue("fiber")).append(",")
+            .append("protein").append(",").append((int) foodItem.getNutrientValue("protein"))
+            .append("\n");
+      }
+      pw.write(sb.toString());
+    } catch (Exception e) {
+      System.out.println(e);
+    }
+    FoodDataMetrics.record(FoodDataMetrics.Operation.SAVE, start);
+    event.path = fileName;
+    event.rowCount = sortedFoodItemList.size();
+    event.commit();
+  }
+
+  /**
+   * Closes the nutrient indexes, deleting their files if they are on disk. Queries and changes
+   * then fail, while the food items can still be read. Closing again does nothing.
+   */
+  @Override
+  public void close() {
+    HashMap<String, NutrientIndex> closing;
+    lock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      closing = indexes;
+      indexes = new HashMap<>();
+      queryCache.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    for (NutrientIndex index : closing.values()) {
+      index.close();
+    }
+  }
+
+  /**
+   * Fails if the food data was closed.
+   */
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Food data is closed");
+    }
+  }
+}
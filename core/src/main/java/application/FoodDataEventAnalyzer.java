@@ -0,0 +1,106 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Summarizes the FoodDataEvents of a flight recording into a latency table per operation. Filter
+ * events are broken down by operation, whether they were cached and their access path, since
+ * their latencies differ by orders of magnitude.
+ *
+ * Usage: java application.FoodDataEventAnalyzer recording.jfr
+ */
+public class FoodDataEventAnalyzer {
+
+  private static final String EVENT_PREFIX = "application."; // prefix of the FoodDataEvents names
+
+  private Map<String, Summary> summaries = new TreeMap<>(); // summary of each operation
+
+  /**
+   * Latencies and averages of the events of one operation.
+   */
+  private static class Summary {
+    private LatencyHistogram latencies = new LatencyHistogram(); // durations in nanoseconds
+    private long rows; // sum of the row counts
+    private long rules; // sum of the rule counts
+    private double selectivity; // sum of the selectivities
+  }
+
+  /**
+   * Adds an event to the summary of its operation, if it is one of the FoodDataEvents.
+   *
+   * @param event the event
+   */
+  public void add(RecordedEvent event) {
+    String name = event.getEventType().getName();
+    if (!name.startsWith(EVENT_PREFIX)) {
+      return;
+    }
+    String operation = name.substring(EVENT_PREFIX.length());
+    if (event.hasField("operation")) {
+      operation = event.getString("operation")
+          + (event.getBoolean("cached") ? " cached" : " " + event.getString("accessPath"));
+    } else if (event.hasField("leaf")) {
+      operation += event.getBoolean("leaf") ? " leaf" : " internal";
+    }
+    Summary summary = summaries.computeIfAbsent(operation, key -> new Summary());
+    summary.latencies.record(event.getDuration().toNanos());
+    if (event.hasField("rowCount")) {
+      summary.rows += event.getInt("rowCount");
+    }
+    if (event.hasField("ruleCount")) {
+      summary.rules += event.getInt("ruleCount");
+    }
+    if (event.hasField("selectivity")) {
+      summary.selectivity += event.getDouble("selectivity");
+    }
+  }
+
+  /**
+   * Formats the summaries as a table, durations in microseconds.
+   *
+   * @return the table
+   */
+  public String report() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%-32s %8s %10s %10s %10s %10s %10s %10s %6s %7s%n", "operation",
+        "count", "mean us", "p50 us", "p90 us", "p99 us", "max us", "rows", "rules",
+        "select"));
+    for (Map.Entry<String, Summary> entry : summaries.entrySet()) {
+      Summary summary = entry.getValue();
+      LatencyHistogram latencies = summary.latencies;
+      long count = latencies.getCount();
+      sb.append(String.format("%-32s %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.0f %6.1f %6.1f%%%n",
+          entry.getKey(), count, latencies.getMean() / 1e3,
+          latencies.getValueAtPercentile(50) / 1e3, latencies.getValueAtPercentile(90) / 1e3,
+          latencies.getValueAtPercentile(99) / 1e3, latencies.getMax() / 1e3,
+          (double) summary.rows / count, (double) summary.rules / count,
+          100 * summary.selectivity / count));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Prints the summary of a recording.
+   *
+   * @param args the path of the recording
+   * @throws IOException if the recording cannot be read
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: java application.FoodDataEventAnalyzer recording.jfr");
+      System.exit(2);
+    }
+    FoodDataEventAnalyzer analyzer = new FoodDataEventAnalyzer();
+    try (RecordingFile recording = new RecordingFile(Paths.get(args[0]))) {
+      while (recording.hasMoreEvents()) {
+        analyzer.add(recording.readEvent());
+      }
+    }
+    System.out.print(analyzer.report());
+  }
+}
@@ -0,0 +1,123 @@
+package application;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+
+/**
+ * Java Flight Recorder events of FoodData and BPTree. The events are only recorded while a
+ * recording has them enabled, e.g. with -XX:StartFlightRecording, and otherwise cost a check of a
+ * flag. A recording is summarized by {@link FoodDataEventAnalyzer}.
+ */
+public final class FoodDataEvents {
+
+  static final String CATEGORY = "Food Query"; // category of the events in JDK Mission Control
+
+  private FoodDataEvents() {}
+
+  /**
+   * Loading a food item file.
+   */
+  @Name("application.Load")
+  @Label("Load Food Items")
+  @Category(CATEGORY)
+  static class Load extends Event {
+    @Label("File")
+    String path;
+
+    @Label("Rows")
+    @Description("Number of food items loaded")
+    int rowCount;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Succeeded")
+    @Description("False if the load failed or was cancelled")
+    boolean succeeded;
+  }
+
+  /**
+   * Filtering the food items.
+   */
+  @Name("application.Filter")
+  @Label("Filter Food Items")
+  @Category(CATEGORY)
+  static class Filter extends Event {
+    @Label("Operation")
+    @Description("filterByName, filterByNutrients or filter for both kinds of rules")
+    String operation;
+
+    @Label("Rules")
+    @Description("Number of nutrient rules")
+    int ruleCount;
+
+    @Label("Rows")
+    @Description("Number of food items filtered")
+    int rowCount;
+
+    @Label("Matches")
+    int matchCount;
+
+    @Label("Selectivity")
+    @Percentage
+    double selectivity;
+
+    @Label("Cached")
+    boolean cached;
+
+    @Label("Access Path")
+    @Description("How the nutrient rules were evaluated: INDEX, SCAN, or BATCH for a query of"
+        + " FoodData.filterBatch; empty if the result was cached")
+    String accessPath;
+  }
+
+  /**
+   * Adding a food item.
+   */
+  @Name("application.AddFoodItem")
+  @Label("Add Food Item")
+  @Category(CATEGORY)
+  static class AddFoodItem extends Event {
+    @Label("Row")
+    int row;
+  }
+
+  /**
+   * Saving the food items to a file.
+   */
+  @Name("application.Save")
+  @Label("Save Food Items")
+  @Category(CATEGORY)
+  static class Save extends Event {
+    @Label("File")
+    String path;
+
+    @Label("Rows")
+    int rowCount;
+  }
+
+  /**
+   * Splitting an overflowing node of a BPTree.
+   */
+  @Name("application.IndexSplit")
+  @Label("Index Node Split")
+  @Category(CATEGORY)
+  static class IndexSplit extends Event {
+    @Label("Leaf")
+    @Description("True for a leaf node, false for an internal node")
+    boolean leaf;
+
+    @Label("Keys Moved")
+    @Description("Number of keys moved to the new sibling")
+    int keysMoved;
+
+    @Label("Branching Factor")
+    int branchingFactor;
+  }
+}
@@ -0,0 +1,402 @@
+package application;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Instrumentation of FoodData and its indexes: a latency histogram per operation, counts of the
+ * rows read and returned by queries, and the height and node count of the indexes of the food
+ * data being watched. Metrics are off by default. While off, an instrumented operation costs a
+ * read of a flag and nothing is recorded.
+ *
+ * Metrics are switched on by setEnabled, over JMX, or at startup with the system property
+ * foodquery.metrics=true. The system property foodquery.metrics.dumpSeconds additionally prints
+ * a report to standard error at that period. The MBeans are registered under
+ * application:type=FoodDataMetrics.
+ */
+public final class FoodDataMetrics {
+
+  /**
+   * The timed operations.
+   */
+  public enum Operation {
+    LOAD, // loading a food item file, parsing and indexing included
+    INDEX_INSERT, // inserting the nutrient values of one food item into every index
+    QUERY, // evaluating a query that was not cached
+    NAME_SCAN, // matching the name rule of a query against every name
+    RANGE_SEARCH, // a range search of a nutrient index
+    INTERSECTION, // intersecting the rows of a rule with the rows matched so far
+    COLUMN_SCAN, // evaluating the nutrient rules of a query by scanning the columns
+    BATCH, // evaluating a batch of queries with one sweep per index
+    SAVE // saving the food items to a file
+  }
+
+  /**
+   * Attributes of the MBean of the metrics as a whole.
+   */
+  public interface MetricsMBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getQueries();
+
+    long getRowsScanned();
+
+    long getRowsReturned();
+
+    Map<String, Integer> getIndexHeights();
+
+    Map<String, Integer> getIndexNodeCounts();
+
+    String getReport();
+
+    void reset();
+  }
+
+  /**
+   * Attributes of the MBean of the latencies of one operation, in microseconds.
+   */
+  public interface LatencyMBean {
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    void reset();
+  }
+
+  private static volatile boolean enabled; // whether anything is recorded
+
+  // latencies of each operation
+  private static final Map<Operation, LatencyHistogram> LATENCIES = createHistograms();
+
+  private static final LongAdder QUERIES = new LongAdder(); // queries evaluated
+  private static final LongAdder ROWS_SCANNED = new LongAdder(); // rows read by the queries
+  private static final LongAdder ROWS_RETURNED = new LongAdder(); // rows matched by the queries
+
+  // food data whose indexes are reported
+  private static volatile WeakReference<FoodData> watched = new WeakReference<>(null);
+
+  private static ScheduledExecutorService dumper; // prints the periodic report, if any
+
+  static {
+    if (Boolean.getBoolean("foodquery.metrics")) {
+      setEnabled(true);
+      registerMBeans();
+    }
+    long dumpSeconds = Long.getLong("foodquery.metrics.dumpSeconds", 0);
+    if (dumpSeconds > 0) {
+      startDump(dumpSeconds, System.err);
+    }
+  }
+
+  private FoodDataMetrics() {}
+
+  /**
+   * Creates an empty histogram for every operation.
+   */
+  private static Map<Operation, LatencyHistogram> createHistograms() {
+    Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+    for (Operation operation : Operation.values()) {
+      histograms.put(operation, new LatencyHistogram());
+    }
+    return histograms;
+  }
+
+  /**
+   * Tells whether metrics are recorded.
+   *
+   * @return true if metrics are on
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Switches recording on or off. Values recorded so far are kept.
+   *
+   * @param enabled true to record
+   */
+  public static void setEnabled(boolean enabled) {
+    FoodDataMetrics.enabled = enabled;
+  }
+
+  /**
+   * Starts timing an operation.
+   *
+   * @return the start time to pass to {@link #record(Operation, long)}, 0 if metrics are off
+   */
+  static long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Records the latency of an operation started by {@link #start()}.
+   *
+   * @param operation the operation
+   * @param start the start time of the operation, nothing is recorded if it is 0
+   */
+  static void record(Operation operation, long start) {
+    if (start != 0) {
+      LATENCIES.get(operation).record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records the latency of a query started by {@link #start()} and the rows it read and
+   * returned.
+   *
+   * @param start the start time of the query, nothing is recorded if it is 0
+   * @param rowsScanned rows read from the name list, the columns or the indexes
+   * @param rows rows matching the query
+   */
+  static void recordQuery(long start, long rowsScanned, BitSet rows) {
+    if (start != 0) {
+      record(Operation.QUERY, start);
+      QUERIES.increment();
+      ROWS_SCANNED.add(rowsScanned);
+      ROWS_RETURNED.add(rows.cardinality());
+    }
+  }
+
+  /**
+   * Reports the indexes of the given food data from now on.
+   *
+   * @param foodData the food data, only weakly referenced
+   */
+  public static void watch(FoodData foodData) {
+    watched = new WeakReference<>(foodData);
+  }
+
+  /**
+   * Gets the latencies of an operation.
+   *
+   * @param operation the operation
+   * @return the histogram of its latencies in nanoseconds
+   */
+  public static LatencyHistogram getLatencies(Operation operation) {
+    return LATENCIES.get(operation);
+  }
+
+  /**
+   * Forgets every recorded value.
+   */
+  public static void reset() {
+    for (LatencyHistogram histogram : LATENCIES.values()) {
+      histogram.reset();
+    }
+    QUERIES.reset();
+    ROWS_SCANNED.reset();
+    ROWS_RETURNED.reset();
+  }
+
+  /**
+   * Gets the height or the node count of every index of the watched food data.
+   *
+   * @param heights true for the heights, false for the node counts
+   * @return the values by nutrient key, empty if no food data is watched
+   */
+  private static Map<String, Integer> indexStatistics(boolean heights) {
+    Map<String, Integer> statistics = new LinkedHashMap<>();
+    FoodData foodData = watched.get();
+    if (foodData != null) {
+      for (Nutrient nutrient : Nutrient.values()) {
+        statistics.put(nutrient.getKey(), heights ? foodData.getIndexHeight(nutrient)
+            : foodData.getIndexNodeCount(nutrient));
+      }
+    }
+    return statistics;
+  }
+
+  /**
+   * Formats the metrics as a table.
+   *
+   * @return the report
+   */
+  public static String report() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%-13s %10s %10s %10s %10s %10s %10s%n", "operation", "count",
+        "mean us", "p50 us", "p90 us", "p99 us", "max us"));
+    for (Operation operation : Operation.values()) {
+      LatencyHistogram histogram = LATENCIES.get(operation);
+      sb.append(String.format("%-13s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n", operation,
+          histogram.getCount(), histogram.getMean() / 1e3,
+          histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(90) / 1e3,
+          histogram.getValueAtPercentile(99) / 1e3, histogram.getMax() / 1e3));
+    }
+    sb.append(String.format("queries %d, rows scanned %d, rows returned %d%n", QUERIES.sum(),
+        ROWS_SCANNED.sum(), ROWS_RETURNED.sum()));
+    Map<String, Integer> heights = indexStatistics(true);
+    Map<String, Integer> nodeCounts = indexStatistics(false);
+    for (String nutrient : heights.keySet()) {
+      sb.append(String.format("index %-12s height %2d, %d nodes%n", nutrient,
+          heights.get(nutrient), nodeCounts.get(nutrient)));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Prints the report periodically from a daemon thread, replacing any earlier dump.
+   *
+   * @param periodSeconds seconds between two reports
+   * @param out where to print
+   */
+  public static synchronized void startDump(long periodSeconds, PrintStream out) {
+    stopDump();
+    dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "food-data-metrics");
+      thread.setDaemon(true);
+      return thread;
+    });
+    dumper.scheduleAtFixedRate(() -> out.print(report()), periodSeconds, periodSeconds,
+        TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops printing the report periodically.
+   */
+  public static synchronized void stopDump() {
+    if (dumper != null) {
+      dumper.shutdownNow();
+      dumper = null;
+    }
+  }
+
+  /**
+   * Registers the MBeans of the metrics with the platform MBean server, once.
+   */
+  public static synchronized void registerMBeans() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName name = new ObjectName("application:type=FoodDataMetrics");
+      if (server.isRegistered(name)) {
+        return;
+      }
+      server.registerMBean(new StandardMBean(new Metrics(), MetricsMBean.class), name);
+      for (Operation operation : Operation.values()) {
+        server.registerMBean(
+            new StandardMBean(new Latency(LATENCIES.get(operation)), LatencyMBean.class),
+            new ObjectName("application:type=FoodDataMetrics,operation=" + operation));
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The MBean of the metrics as a whole.
+   */
+  private static class Metrics implements MetricsMBean {
+    @Override
+    public boolean isEnabled() {
+      return FoodDataMetrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+      FoodDataMetrics.setEnabled(enabled);
+    }
+
+    @Override
+    public long getQueries() {
+      return QUERIES.sum();
+    }
+
+    @Override
+    public long getRowsScanned() {
+      return ROWS_SCANNED.sum();
+    }
+
+    @Override
+    public long getRowsReturned() {
+      return ROWS_RETURNED.sum();
+    }
+
+    @Override
+    public Map<String, Integer> getIndexHeights() {
+      return indexStatistics(true);
+    }
+
+    @Override
+    public Map<String, Integer> getIndexNodeCounts() {
+      return indexStatistics(false);
+    }
+
+    @Override
+    public String getReport() {
+      return report();
+    }
+
+    @Override
+    public void reset() {
+      FoodDataMetrics.reset();
+    }
+  }
+
+  /**
+   * The MBean of the latencies of one operation.
+   */
+  private static class Latency implements LatencyMBean {
+    private LatencyHistogram histogram; // the latencies in nanoseconds
+
+    Latency(LatencyHistogram histogram) {
+      this.histogram = histogram;
+    }
+
+    @Override
+    public long getCount() {
+      return histogram.getCount();
+    }
+
+    @Override
+    public double getMeanMicros() {
+      return histogram.getMean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+      return histogram.getValueAtPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getP90Micros() {
+      return histogram.getValueAtPercentile(90) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+      return histogram.getValueAtPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+      return histogram.getMax() / 1e3;
+    }
+
+    @Override
+    public void reset() {
+      histogram.reset();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package application;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Writes food items as JSON objects, CSV records or records of the food data file format, for
+ * the tools that run without the GUI.
+ */
+public class FoodItemFormat {
+
+  /**
+   * Header of the CSV records written by {@link #appendCsv(Appendable, int, FoodItem)}, after
+   * any leading columns of the caller.
+   */
+  public static final String CSV_HEADER = csvHeader();
+
+  // order of the nutrients in a record of the food data file format
+  private static final String[] FILE_NUTRIENT_ORDER =
+      {"calories", "fat", "carbohydrate", "fiber", "protein"};
+
+  private FoodItemFormat() {}
+
+  /**
+   * Builds the CSV header from the nutrient keys.
+   *
+   * @return the header
+   */
+  private static String csvHeader() {
+    StringBuilder sb = new StringBuilder("row,id,name");
+    for (Nutrient nutrient : Nutrient.values()) {
+      sb.append(',').append(nutrient.getKey());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Appends a food item as a JSON object.
+   *
+   * @param out where to write
+   * @param row the row id of the food item
+   * @param foodItem the food item
+   */
+  public static void appendJson(Appendable out, int row, FoodItem foodItem) throws IOException {
+    out.append("{\"row\":").append(String.valueOf(row)).append(",\"id\":")
+        .append(quote(foodItem.getID())).append(",\"name\":").append(quote(foodItem.getName()));
+    for (Nutrient nutrient : Nutrient.values()) {
+      out.append(',').append(quote(nutrient.getKey())).append(':')
+          .append(String.valueOf(foodItem.getNutrientValue(nutrient.getKey())));
+    }
+    out.append('}');
+  }
+
+  /**
+   * Appends a food item as a CSV record, without a line break.
+   *
+   * @param out where to write
+   * @param row the row id of the food item
+   * @param foodItem the food item
+   */
+  public static void appendCsv(Appendable out, int row, FoodItem foodItem) throws IOException {
+    out.append(String.valueOf(row)).append(',').append(csvField(foodItem.getID())).append(',')
+        .append(csvField(foodItem.getName()));
+    for (Nutrient nutrient : Nutrient.values()) {
+      out.append(',').append(String.valueOf(foodItem.getNutrientValue(nutrient.getKey())));
+    }
+  }
+
+  /**
+   * Appends a food item as a record of the food data file format read by
+   * FoodData.loadFoodItems, without a line break.
+   *
+   * @param out where to write
+   * @param foodItem the food item
+   */
+  public static void appendFileRecord(Appendable out, FoodItem foodItem) throws IOException {
+    out.append(foodItem.getID()).append(',').append(foodItem.getName());
+    for (String key : FILE_NUTRIENT_ORDER) {
+      out.append(',').append(key).append(',')
+          .append(plainNumber(foodItem.getNutrientValue(key)));
+    }
+  }
+
+  /**
+   * Formats a nutrient value without an exponent, which the food data file format does not allow.
+   *
+   * @param value the value, not negative
+   * @return the value, without a fraction if it is a whole number
+   */
+  private static String plainNumber(double value) {
+    if (value == Math.rint(value) && value < 1e15) {
+      return Long.toString((long) value);
+    }
+    String number = Double.toString(value);
+    return number.indexOf('E') < 0 ? number : BigDecimal.valueOf(value).toPlainString();
+  }
+
+  /**
+   * Quotes a string as a JSON string literal.
+   *
+   * @param value the string
+   * @return the literal, or null if the string is null
+   */
+  public static String quote(String value) {
+    if (value == null) {
+      return "null";
+    }
+    StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  /**
+   * Quotes a CSV field if it contains a separator, a quote or a line break.
+   *
+   * @param value the field
+   * @return the field as written to a CSV record
+   */
+  public static String csvField(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
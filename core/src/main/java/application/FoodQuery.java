@@ -0,0 +1,214 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A compiled filter query made of an optional name rule and a list of nutrient rules. Rules are
+ * parsed once and normalized so that equivalent queries share the same key, which lets the query
+ * be used both as a cache key and as a predicate over a single FoodItem.
+ */
+public class FoodQuery {
+
+  private static final String LESS = "<=";
+  private static final String GREATER = ">=";
+  private static final String EQUAL = "==";
+
+  // lower-cased name substring, or null if there is no name rule
+  private String nameSubstring;
+
+  // nutrient, comparator and value of each rule, in normalized order
+  private String[] nutrients;
+  private String[] comparators;
+  private double[] values;
+
+  // the normalized form of the whole query, the escaped name and the rules separated by '|'
+  private String key;
+
+  /**
+   * Compiles a query from a name rule and a list of nutrient rules.
+   *
+   * @param nameSubstring substring the name must contain, null or empty for no name rule
+   * @param rules nutrient rules in the "<nutrient> <comparator> <value>" format
+   * @throws IllegalArgumentException if a rule is not in the expected format or its value is not
+   *         a finite number
+   */
+  public FoodQuery(String nameSubstring, List<String> rules) {
+    this.nameSubstring = nameSubstring == null || nameSubstring.isEmpty() ? null
+        : nameSubstring.toLowerCase();
+
+    // a sorted set drops duplicate rules and fixes the order of the remaining ones
+    TreeSet<String> normalizedRules = new TreeSet<>();
+    if (rules != null) {
+      for (String rule : rules) {
+        normalizedRules.add(normalizeRule(rule));
+      }
+    }
+
+    nutrients = new String[normalizedRules.size()];
+    comparators = new String[normalizedRules.size()];
+    values = new double[normalizedRules.size()];
+    int i = 0;
+    for (String rule : normalizedRules) {
+      String[] ruleSplit = rule.split(" ");
+      nutrients[i] = ruleSplit[0];
+      comparators[i] = ruleSplit[1];
+      values[i] = Double.parseDouble(ruleSplit[2]);
+      i++;
+    }
+
+    // the name is escaped, so a '|' in it cannot pass for the start of the rules
+    key = (this.nameSubstring == null ? ""
+        : this.nameSubstring.replace("\\", "\\\\").replace("|", "\\|")) + "|"
+        + String.join("|", normalizedRules);
+  }
+
+  /**
+   * Normalizes a single rule: lower-cases the nutrient and prints the value as a double. NaN and
+   * infinite values are rejected, the indexes and the column scans would not agree on them.
+   *
+   * @param rule the rule to normalize
+   * @return the normalized rule
+   */
+  private static String normalizeRule(String rule) {
+    String[] ruleSplit = rule == null ? new String[0] : rule.trim().split("\\s+");
+    if (ruleSplit.length != 3 || !isComparator(ruleSplit[1])) {
+      throw new IllegalArgumentException("Invalid rule: " + rule);
+    }
+    double value;
+    try {
+      value = Double.parseDouble(ruleSplit[2]);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid rule: " + rule);
+    }
+    if (!Double.isFinite(value)) {
+      throw new IllegalArgumentException("Invalid rule: " + rule);
+    }
+    // adding 0.0 turns -0.0 into 0.0, which the indexes would order below 0.0
+    return ruleSplit[0].toLowerCase() + " " + ruleSplit[1] + " " + (value + 0.0);
+  }
+
+  /**
+   * Checks if the string is one of the supported comparators.
+   *
+   * @param comparator the comparator
+   * @return true, if it is "<=", ">=" or "=="
+   */
+  private static boolean isComparator(String comparator) {
+    return LESS.equals(comparator) || GREATER.equals(comparator) || EQUAL.equals(comparator);
+  }
+
+  /**
+   * Compares a nutrient value against a rule threshold the way the nutrient indexes order their
+   * keys, where a NaN value is above every threshold.
+   *
+   * @param value the nutrient value of a food item
+   * @param comparator one of "<=", ">=" or "=="
+   * @param threshold the value of the rule
+   * @return true, if the value satisfies the rule
+   */
+  public static boolean compare(double value, String comparator, double threshold) {
+    if (LESS.equals(comparator)) {
+      return value <= threshold;
+    } else if (GREATER.equals(comparator)) {
+      return !(value < threshold);
+    }
+    return value == threshold;
+  }
+
+  /**
+   * Checks whether the food item satisfies the name rule and all the nutrient rules. Costs
+   * O(rules) and does not touch any index.
+   *
+   * @param foodItem the food item to test
+   * @return true, if the food item matches the query
+   */
+  public boolean matches(FoodItem foodItem) {
+    if (nameSubstring != null && !foodItem.getName().toLowerCase().contains(nameSubstring)) {
+      return false;
+    }
+    for (int i = 0; i < nutrients.length; i++) {
+      if (!compare(foodItem.getNutrientValue(nutrients[i]), comparators[i], values[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the normalized key of this query.
+   *
+   * @return the key
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Gets the lower-cased name substring.
+   *
+   * @return the name substring, or null if there is no name rule
+   */
+  public String getNameSubstring() {
+    return nameSubstring;
+  }
+
+  /**
+   * Gets the number of nutrient rules.
+   *
+   * @return the rule count
+   */
+  public int getRuleCount() {
+    return nutrients.length;
+  }
+
+  /**
+   * Gets the lower-cased nutrient of the i-th rule.
+   *
+   * @param i index of the rule
+   * @return the nutrient
+   */
+  public String getNutrient(int i) {
+    return nutrients[i];
+  }
+
+  /**
+   * Gets the comparator of the i-th rule.
+   *
+   * @param i index of the rule
+   * @return the comparator
+   */
+  public String getComparator(int i) {
+    return comparators[i];
+  }
+
+  /**
+   * Gets the value of the i-th rule.
+   *
+   * @param i index of the rule
+   * @return the value
+   */
+  public double getValue(int i) {
+    return values[i];
+  }
+
+  /**
+   * Gets the nutrient rules in their normalized form.
+   *
+   * @return list of rules
+   */
+  public List<String> getRules() {
+    List<String> rules = new ArrayList<>();
+    for (int i = 0; i < nutrients.length; i++) {
+      rules.add(nutrients[i] + " " + comparators[i] + " " + values[i]);
+    }
+    return Collections.unmodifiableList(rules);
+  }
+
+  @Override
+  public String toString() {
+    return key;
+  }
+}
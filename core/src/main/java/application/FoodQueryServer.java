@@ -0,0 +1,365 @@
+package application;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the food data over HTTP without any user interface. Every endpoint answers GET requests
+ * with JSON:
+ *
+ * <pre>
+ * /foods?name=&lt;substring&gt;&amp;rule=&lt;nutrient comparator value&gt;...
+ *     food items matching the name and all the nutrient rules
+ * /top?nutrient=&lt;nutrient&gt;&amp;k=&lt;count&gt;&amp;order=desc|asc[&amp;name=...&amp;rule=...]
+ *     the k matching food items with the highest or lowest value of a nutrient
+ * /meal?items=&lt;row&gt;:&lt;servings&gt;,...
+ *     nutrient totals and caloric breakdown of a meal
+ * </pre>
+ *
+ * Lists of food items are written to the response as they are serialized, so a large result is
+ * never held in memory as a whole string. The server only reads the food data.
+ */
+public class FoodQueryServer {
+
+  public static final int DEFAULT_PORT = 8080;
+
+  private static final int DEFAULT_TOP_K = 10; // k of a top request without one
+
+  private FoodData foodData; // the food data to serve
+
+  private MealEvaluator mealEvaluator; // evaluates the meals of meal requests
+
+  private HttpServer httpServer; // the JDK http server
+
+  private ExecutorService requestExecutor; // handles the requests, one thread per request
+
+  /**
+   * Creates a server for the food data on the given port. The server is started by start().
+   *
+   * @param foodData the food data to serve
+   * @param port the port to listen on, 0 for any free port
+   * @throws IOException if the port cannot be bound
+   */
+  public FoodQueryServer(FoodData foodData, int port) throws IOException {
+    this.foodData = foodData;
+    mealEvaluator = new MealEvaluator(foodData);
+    httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+    httpServer.createContext("/foods", new FoodsHandler());
+    httpServer.createContext("/top", new TopHandler());
+    httpServer.createContext("/meal", new MealHandler());
+    requestExecutor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "food-query-server");
+      thread.setDaemon(true);
+      return thread;
+    });
+    httpServer.setExecutor(requestExecutor);
+  }
+
+  /**
+   * Serves the default food item file, on the port given as the only argument or on the default
+   * port.
+   *
+   * Usage: java application.FoodQueryServer [port]
+   *
+   * @param args the arguments
+   * @throws IOException if the port cannot be bound
+   */
+  public static void main(String[] args) throws IOException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+    FoodQueryServer server = new FoodQueryServer(new FoodData(), port);
+    server.start();
+    System.out.println("Serving food data on port " + server.getPort());
+  }
+
+  /**
+   * Starts accepting requests.
+   */
+  public void start() {
+    httpServer.start();
+  }
+
+  /**
+   * Stops accepting requests and waits up to the given delay for running requests to finish.
+   *
+   * @param delaySeconds maximum number of seconds to wait
+   */
+  public void stop(int delaySeconds) {
+    httpServer.stop(delaySeconds);
+    requestExecutor.shutdownNow();
+  }
+
+  /**
+   * Gets the port the server listens on.
+   *
+   * @return the port
+   */
+  public int getPort() {
+    return httpServer.getAddress().getPort();
+  }
+
+  /**
+   * Base class of the handlers. Parses the query string and turns invalid requests into error
+   * responses.
+   */
+  private abstract class JsonHandler implements HttpHandler {
+
+    /*
+     * (non-Javadoc) - answers the request, or sends an error if it is invalid
+     *
+     * @see com.sun.net.httpserver.HttpHandler#handle(com.sun.net.httpserver.HttpExchange)
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      try {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+          sendError(exchange, 405, "Only GET is supported");
+          return;
+        }
+        Map<String, List<String>> parameters =
+            parseQuery(exchange.getRequestURI().getRawQuery());
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        try {
+          respond(exchange, parameters);
+        } catch (IllegalArgumentException e) {
+          sendError(exchange, 400, e.getMessage());
+        }
+      } finally {
+        exchange.close();
+      }
+    }
+
+    /**
+     * Validates the request, then sends the response headers and writes the body.
+     *
+     * @param exchange the request
+     * @param parameters the parameters of the query string
+     * @throws IllegalArgumentException if the request is invalid, before anything is sent
+     */
+    abstract void respond(HttpExchange exchange, Map<String, List<String>> parameters)
+        throws IOException;
+  }
+
+  /**
+   * Answers /foods with the food items matching a name and nutrient rules.
+   */
+  private class FoodsHandler extends JsonHandler {
+    @Override
+    void respond(HttpExchange exchange, Map<String, List<String>> parameters)
+        throws IOException {
+      BitSet rows = foodData.filterRows(parseFoodQuery(parameters));
+      List<FoodItem> foodItems = foodData.getFoodItems(rows);
+      Writer writer = startResponse(exchange);
+      writer.write("{\"count\":" + foodItems.size() + ",\"foods\":[");
+      int i = 0;
+      for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+        if (i > 0) {
+          writer.write(',');
+        }
+        FoodItemFormat.appendJson(writer, row, foodItems.get(i++));
+      }
+      writer.write("]}");
+      writer.flush();
+    }
+  }
+
+  /**
+   * Answers /top with the matching food items ranked by a nutrient.
+   */
+  private class TopHandler extends JsonHandler {
+    @Override
+    void respond(HttpExchange exchange, Map<String, List<String>> parameters)
+        throws IOException {
+      Nutrient nutrient = parseNutrient(getParameter(parameters, "nutrient", null));
+      int k = parseInt(getParameter(parameters, "k", String.valueOf(DEFAULT_TOP_K)), "k");
+      String order = getParameter(parameters, "order", "desc");
+      if (!"desc".equals(order) && !"asc".equals(order)) {
+        throw new IllegalArgumentException("Invalid order: " + order);
+      }
+      int[] rows =
+          foodData.topRows(parseFoodQuery(parameters), nutrient, k, "desc".equals(order));
+      Writer writer = startResponse(exchange);
+      writer.write("{\"nutrient\":" + FoodItemFormat.quote(nutrient.getKey()) + ",\"order\":"
+          + FoodItemFormat.quote(order) + ",\"foods\":[");
+      for (int i = 0; i < rows.length; i++) {
+        if (i > 0) {
+          writer.write(',');
+        }
+        FoodItemFormat.appendJson(writer, rows[i], foodData.getFoodItem(rows[i]));
+      }
+      writer.write("]}");
+      writer.flush();
+    }
+  }
+
+  /**
+   * Answers /meal with the totals and caloric breakdown of a meal.
+   */
+  private class MealHandler extends JsonHandler {
+    @Override
+    void respond(HttpExchange exchange, Map<String, List<String>> parameters)
+        throws IOException {
+      String[] items = getParameter(parameters, "items", "").split(",");
+      int[] rows = new int[items.length];
+      double[] quantities = new double[items.length];
+      int count = 0;
+      for (String item : items) {
+        if (item.isEmpty()) {
+          continue;
+        }
+        String[] itemSplit = item.split(":");
+        if (itemSplit.length > 2) {
+          throw new IllegalArgumentException("Invalid meal item: " + item);
+        }
+        rows[count] = parseInt(itemSplit[0], "row");
+        quantities[count] = itemSplit.length == 2 ? parseDouble(itemSplit[1], "servings") : 1.0;
+        count++;
+      }
+      if (count == 0) {
+        throw new IllegalArgumentException("Meal doesn't contain any food items");
+      }
+      rows = Arrays.copyOf(rows, count);
+      quantities = Arrays.copyOf(quantities, count);
+      MealEvaluator.Evaluation evaluation = mealEvaluator.evaluate(rows, quantities);
+
+      Writer writer = startResponse(exchange);
+      writer.write("{\"totals\":{");
+      for (Nutrient nutrient : Nutrient.values()) {
+        writer.write((nutrient.ordinal() > 0 ? "," : "")
+            + FoodItemFormat.quote(nutrient.getKey()) + ":" + evaluation.getTotal(nutrient));
+      }
+      writer.write("},\"calorieBreakdown\":{\"fat\":" + evaluation.getCaloriesFromFat()
+          + ",\"carbohydrate\":" + evaluation.getCaloriesFromCarbohydrates() + ",\"protein\":"
+          + evaluation.getCaloriesFromProtein() + "}}");
+      writer.flush();
+    }
+  }
+
+  /**
+   * Sends the response headers of a successful request with a body of unknown length.
+   *
+   * @param exchange the request
+   * @return a writer of the response body
+   */
+  private static Writer startResponse(HttpExchange exchange) throws IOException {
+    exchange.sendResponseHeaders(200, 0);
+    return new BufferedWriter(
+        new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Sends an error response.
+   *
+   * @param exchange the request
+   * @param status the HTTP status code
+   * @param message the error message
+   */
+  private static void sendError(HttpExchange exchange, int status, String message)
+      throws IOException {
+    byte[] body =
+        ("{\"error\":" + FoodItemFormat.quote(message) + "}").getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, body.length);
+    exchange.getResponseBody().write(body);
+  }
+
+  /**
+   * Builds the food query of the name and rule parameters.
+   *
+   * @param parameters the parameters of the query string
+   * @return the query
+   */
+  private static FoodQuery parseFoodQuery(Map<String, List<String>> parameters) {
+    return new FoodQuery(getParameter(parameters, "name", ""),
+        parameters.getOrDefault("rule", Collections.emptyList()));
+  }
+
+  /**
+   * Finds a nutrient by its key, e.g. "fat" or "protein".
+   *
+   * @param key the key
+   * @return the nutrient
+   */
+  private static Nutrient parseNutrient(String key) {
+    for (Nutrient nutrient : Nutrient.values()) {
+      if (nutrient.getKey().equalsIgnoreCase(key)) {
+        return nutrient;
+      }
+    }
+    throw new IllegalArgumentException("Unknown nutrient: " + key);
+  }
+
+  private static int parseInt(String value, String name) {
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid " + name + ": " + value);
+    }
+  }
+
+  private static double parseDouble(String value, String name) {
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid " + name + ": " + value);
+    }
+  }
+
+  /**
+   * Gets the first value of a parameter.
+   *
+   * @param parameters the parameters of the query string
+   * @param name name of the parameter
+   * @param defaultValue value of a missing parameter, null if the parameter is required
+   * @return the value
+   */
+  private static String getParameter(Map<String, List<String>> parameters, String name,
+      String defaultValue) {
+    List<String> values = parameters.get(name);
+    if (values != null && !values.isEmpty()) {
+      return values.get(0);
+    }
+    if (defaultValue == null) {
+      throw new IllegalArgumentException("Missing parameter: " + name);
+    }
+    return defaultValue;
+  }
+
+  /**
+   * Splits a raw query string into its decoded parameters.
+   *
+   * @param rawQuery the raw query string, may be null
+   * @return map of parameter names to their values, in order
+   */
+  private static Map<String, List<String>> parseQuery(String rawQuery) {
+    Map<String, List<String>> parameters = new HashMap<>();
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return parameters;
+    }
+    for (String pair : rawQuery.split("&")) {
+      int equals = pair.indexOf('=');
+      String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals),
+          StandardCharsets.UTF_8);
+      String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1),
+          StandardCharsets.UTF_8);
+      parameters.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+    }
+    return parameters;
+  }
+}
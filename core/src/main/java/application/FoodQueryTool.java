@@ -0,0 +1,283 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs filter queries against a food item file from the command line, without the GUI. Queries
+ * are read one per line in the same form as the key of a FoodQuery: the name substring followed
+ * by the nutrient rules, separated by '|', e.g. "bread|fat &lt;= 2|protein &gt;= 3" or
+ * "|calories &lt;= 100". Blank lines and lines starting with '#' are skipped.
+ *
+ * The food data is loaded and indexed once and shared by all the threads, which run their queries
+ * concurrently under its read lock. Lines are run in batches on a thread pool, and the results of
+ * the batches are written in the order of the lines, each tagged with its line number. Invalid
+ * queries are reported on standard error.
+ *
+ * Usage: java application.FoodQueryTool [--catalog file] [--queries file] [--format csv|json]
+ * [--threads n]
+ */
+public class FoodQueryTool {
+
+  private static final String USAGE = "Usage: java application.FoodQueryTool [--catalog file]"
+      + " [--queries file] [--format csv|json] [--threads n]";
+
+  private static final int BATCH_SIZE = 512; // lines run by a single task
+
+  private static final int PENDING_BATCHES_PER_THREAD = 4; // bounds the batches held in memory
+
+  private FoodData foodData; // the food data queried by all the threads
+
+  private boolean json; // true to write JSON lines, false to write CSV
+
+  /**
+   * Creates a tool over loaded food data.
+   *
+   * @param foodData the food data
+   * @param json true to write JSON lines, false to write CSV
+   */
+  public FoodQueryTool(FoodData foodData, boolean json) {
+    this.foodData = foodData;
+    this.json = json;
+  }
+
+  /**
+   * Runs the tool.
+   *
+   * @param args the command line options
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    String catalog = "foodItems.csv";
+    String queries = null;
+    String format = "csv";
+    int threads = Runtime.getRuntime().availableProcessors();
+    try {
+      for (int i = 0; i < args.length; i += 2) {
+        if (i + 1 == args.length) {
+          throw new IllegalArgumentException("Missing value of " + args[i]);
+        }
+        switch (args[i]) {
+          case "--catalog":
+            catalog = args[i + 1];
+            break;
+          case "--queries":
+            queries = args[i + 1];
+            break;
+          case "--format":
+            format = args[i + 1];
+            break;
+          case "--threads":
+            threads = Integer.parseInt(args[i + 1]);
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option: " + args[i]);
+        }
+      }
+      if (!"csv".equals(format) && !"json".equals(format)) {
+        throw new IllegalArgumentException("Unknown format: " + format);
+      }
+      if (threads <= 0) {
+        throw new IllegalArgumentException("Invalid thread count: " + threads);
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+
+    FoodData foodData = FoodData.fromFile(catalog);
+    if (foodData == null) {
+      System.err.println("Food items could not be loaded from " + catalog);
+      System.exit(1);
+    }
+    FoodQueryTool tool = new FoodQueryTool(foodData, "json".equals(format));
+    try (foodData; InputStream in = queries == null ? System.in : new FileInputStream(queries)) {
+      BufferedReader reader =
+          new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+      Writer writer = new BufferedWriter(
+          new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+      long start = System.nanoTime();
+      long count = tool.run(reader, writer, threads);
+      writer.flush();
+      System.err.printf("%d queries in %.3f s%n", count, (System.nanoTime() - start) / 1e9);
+    }
+  }
+
+  /**
+   * Runs every query read from the reader and writes the results in input order.
+   *
+   * @param reader the queries, one per line
+   * @param writer receives the results
+   * @param threads number of threads running the queries
+   * @return the number of lines read
+   */
+  public long run(BufferedReader reader, Writer writer, int threads)
+      throws IOException, InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "food-query-tool");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+    int maxPending = threads * PENDING_BATCHES_PER_THREAD;
+    long lineNumber = 0;
+    try {
+      if (!json) {
+        writer.write("query," + FoodItemFormat.CSV_HEADER + "\n");
+      }
+      List<String> batch = new ArrayList<>(BATCH_SIZE);
+      long firstLine = 1;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        batch.add(line);
+        if (batch.size() == BATCH_SIZE) {
+          submit(pool, pending, batch, firstLine);
+          batch = new ArrayList<>(BATCH_SIZE);
+          firstLine = lineNumber + 1;
+          // write finished batches in order before reading too far ahead
+          while (pending.size() >= maxPending) {
+            writer.write(take(pending.poll()));
+          }
+        }
+      }
+      submit(pool, pending, batch, firstLine);
+      while (!pending.isEmpty()) {
+        writer.write(take(pending.poll()));
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    return lineNumber;
+  }
+
+  /**
+   * Submits a batch of lines to the pool.
+   */
+  private void submit(ExecutorService pool, ArrayDeque<Future<String>> pending,
+      List<String> batch, long firstLine) {
+    if (!batch.isEmpty()) {
+      pending.add(pool.submit(() -> runBatch(batch, firstLine)));
+    }
+  }
+
+  /**
+   * Waits for the output of a batch.
+   */
+  private static String take(Future<String> batchOutput) throws InterruptedException {
+    try {
+      return batchOutput.get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Runs the queries of a batch of lines. The valid queries of the batch are answered together by
+   * FoodData.filterBatch, which walks each nutrient index once for the whole batch.
+   *
+   * @param lines the lines
+   * @param firstLine line number of the first line
+   * @return the output of the batch
+   */
+  private String runBatch(List<String> lines, long firstLine) throws IOException {
+    FoodQuery[] queries = new FoodQuery[lines.size()];
+    String[] errors = new String[lines.size()];
+    List<FoodQuery> validQueries = new ArrayList<>(lines.size());
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i);
+      if (line.isBlank() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split("\\|", -1);
+      try {
+        FoodQuery query =
+            new FoodQuery(fields[0].trim(), Arrays.asList(fields).subList(1, fields.length));
+        for (int rule = 0; rule < query.getRuleCount(); rule++) {
+          if (Nutrient.fromKey(query.getNutrient(rule)) == null) {
+            throw new IllegalArgumentException("Unknown nutrient: " + query.getNutrient(rule));
+          }
+        }
+        queries[i] = query;
+        validQueries.add(query);
+      } catch (IllegalArgumentException e) {
+        errors[i] = e.getMessage();
+        System.err.println("Line " + (firstLine + i) + ": " + errors[i]);
+      }
+    }
+
+    // the matching food items of each query, looked up under the same lock as the queries
+    List<BitSet> results;
+    List<List<FoodItem>> foodItems = new ArrayList<>(validQueries.size());
+    foodData.getLock().readLock().lock();
+    try {
+      results = foodData.filterBatch(validQueries);
+      for (BitSet rows : results) {
+        foodItems.add(foodData.getFoodItems(rows));
+      }
+    } finally {
+      foodData.getLock().readLock().unlock();
+    }
+
+    StringBuilder out = new StringBuilder();
+    int next = 0;
+    for (int i = 0; i < lines.size(); i++) {
+      long lineNumber = firstLine + i;
+      if (queries[i] != null) {
+        appendResult(results.get(next), foodItems.get(next), lineNumber, out);
+        next++;
+      } else if (errors[i] != null && json) {
+        out.append("{\"query\":").append(lineNumber).append(",\"error\":")
+            .append(FoodItemFormat.quote(errors[i])).append("}\n");
+      }
+    }
+    return out.toString();
+  }
+
+  /**
+   * Appends the result of a query.
+   *
+   * @param rows the matching row ids
+   * @param foodItems the matching food items, in row order
+   * @param lineNumber line number of the query
+   * @param out receives the result
+   */
+  private void appendResult(BitSet rows, List<FoodItem> foodItems, long lineNumber,
+      StringBuilder out) throws IOException {
+    int i = 0;
+    if (json) {
+      out.append("{\"query\":").append(lineNumber).append(",\"count\":")
+          .append(rows.cardinality()).append(",\"foods\":[");
+      for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+        FoodItemFormat.appendJson(out, row, foodItems.get(i++));
+        out.append(',');
+      }
+      if (out.charAt(out.length() - 1) == ',') {
+        out.setLength(out.length() - 1);
+      }
+      out.append("]}\n");
+    } else {
+      for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+        out.append(lineNumber).append(',');
+        FoodItemFormat.appendCsv(out, row, foodItems.get(i++));
+        out.append('\n');
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package application;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Primary index of the food item ids: the id of every row, packed into two longs by PackedId,
+ * and an open addressing hash table from id to row over primitive arrays. Ids that cannot be
+ * packed are kept in small maps on the side. Rows are added in order, and an id can only be added
+ * once. The food items still hold their own id strings, so the packed ids speed up the lookups
+ * without saving any heap.
+ */
+public class IdIndex {
+
+  private static final int INITIAL_CAPACITY = 16; // initial number of rows
+
+  private long[] highs; // high long of the packed id of each row, -1 if it could not be packed
+  private long[] lows; // low long of the packed id of each row
+  private int size; // number of rows
+
+  private int[] slots; // row + 1 by hash of the packed id, 0 when free
+
+  private HashMap<Integer, String> unpackedIds; // ids that could not be packed, by row
+  private HashMap<String, Integer> unpackedRows; // rows of the ids that could not be packed
+
+  /**
+   * Creates an empty index.
+   */
+  public IdIndex() {
+    highs = new long[INITIAL_CAPACITY];
+    lows = new long[INITIAL_CAPACITY];
+    slots = new int[INITIAL_CAPACITY * 2];
+    unpackedIds = new HashMap<>();
+    unpackedRows = new HashMap<>();
+  }
+
+  /**
+   * Adds the id of the next row, unless another row has it.
+   *
+   * @param id the id
+   * @return the row of the id, or -1 if the id was already taken and nothing was added
+   */
+  public int add(String id) {
+    if (getRow(id) >= 0) {
+      return -1;
+    }
+    int row = size++;
+    if (row == highs.length) {
+      highs = Arrays.copyOf(highs, row * 2);
+      lows = Arrays.copyOf(lows, row * 2);
+    }
+    if (PackedId.canPack(id)) {
+      highs[row] = PackedId.high(id);
+      lows[row] = PackedId.low(id);
+      if (size * 2 > slots.length) {
+        rehash();
+      } else {
+        slots[freeSlot(highs[row], lows[row])] = row + 1;
+      }
+    } else {
+      highs[row] = -1;
+      unpackedIds.put(row, id);
+      unpackedRows.put(id, row);
+    }
+    return row;
+  }
+
+  /**
+   * Gets the row of an id.
+   *
+   * @param id the id
+   * @return the row, or -1 if no row has the id
+   */
+  public int getRow(String id) {
+    if (!PackedId.canPack(id)) {
+      Integer row = unpackedRows.get(id);
+      return row == null ? -1 : row;
+    }
+    long high = PackedId.high(id);
+    long low = PackedId.low(id);
+    int mask = slots.length - 1;
+    for (int slot = hash(high, low) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+      int row = slots[slot] - 1;
+      if (highs[row] == high && lows[row] == low) {
+        return row;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the id of a row.
+   *
+   * @param row the row
+   * @return the id
+   */
+  public String getId(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+    }
+    return highs[row] == -1 ? unpackedIds.get(row) : PackedId.unpack(highs[row], lows[row]);
+  }
+
+  /**
+   * Gets the number of rows.
+   *
+   * @return the number of ids
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Finds the free slot where a packed id goes.
+   */
+  private int freeSlot(long high, long low) {
+    int mask = slots.length - 1;
+    int slot = hash(high, low) & mask;
+    while (slots[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Doubles the hash table, keeping it at most half full.
+   */
+  private void rehash() {
+    slots = new int[slots.length * 2];
+    for (int row = 0; row < size; row++) {
+      if (highs[row] != -1) {
+        slots[freeSlot(highs[row], lows[row])] = row + 1;
+      }
+    }
+  }
+
+  /**
+   * Hashes a packed id.
+   */
+  private static int hash(long high, long low) {
+    long hash = (high * 0x9E3779B97F4A7C15L) ^ low;
+    hash ^= hash >>> 29;
+    hash *= 0xBF58476D1CE4E5B9L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+}
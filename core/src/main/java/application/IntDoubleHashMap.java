@@ -0,0 +1,252 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from int keys to double values backed by primitive arrays. Uses open addressing
+ * with linear probing, so entries are neither boxed nor wrapped in node objects. Absent keys
+ * read as 0.
+ */
+public class IntDoubleHashMap {
+
+  private static final int EMPTY = -1; // marks a free slot, keys must not be negative
+
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private int[] keys; // key of each slot, EMPTY if the slot is free
+
+  private double[] values; // value of each slot
+
+  private int size; // number of entries
+
+  /**
+   * Receives the entries of the map, see {@link IntDoubleHashMap#forEach(EntryConsumer)}.
+   */
+  public interface EntryConsumer {
+    void accept(int key, double value);
+  }
+
+  /**
+   * Creates an empty map.
+   */
+  public IntDoubleHashMap() {
+    this(16);
+  }
+
+  /**
+   * Creates an empty map that holds the given number of entries without resizing.
+   *
+   * @param expectedSize expected number of entries
+   */
+  public IntDoubleHashMap(int expectedSize) {
+    int capacity = 16;
+    while (capacity * LOAD_FACTOR < expectedSize) {
+      capacity <<= 1;
+    }
+    keys = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+    values = new double[capacity];
+  }
+
+  /**
+   * Spreads the bits of a key and maps it to a slot.
+   *
+   * @param key the key
+   * @return index of the home slot of the key
+   */
+  private int slotOf(int key) {
+    int hash = key * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & (keys.length - 1);
+  }
+
+  /**
+   * Finds the slot holding a key.
+   *
+   * @param key the key
+   * @return index of the slot, or -1 if the key is absent
+   */
+  private int find(int key) {
+    for (int slot = slotOf(key); keys[slot] != EMPTY; slot = (slot + 1) & (keys.length - 1)) {
+      if (keys[slot] == key) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the value of a key.
+   *
+   * @param key the key
+   * @return the value, 0 if the key is absent
+   */
+  public double get(int key) {
+    int slot = find(key);
+    return slot < 0 ? 0.0 : values[slot];
+  }
+
+  /**
+   * Checks whether a key is present.
+   *
+   * @param key the key
+   * @return true, if the map has an entry for the key
+   */
+  public boolean containsKey(int key) {
+    return find(key) >= 0;
+  }
+
+  /**
+   * Sets the value of a key.
+   *
+   * @param key the key, must not be negative
+   * @param value the value
+   */
+  public void put(int key, double value) {
+    int slot = slotFor(key);
+    values[slot] = value;
+  }
+
+  /**
+   * Adds to the value of a key, treating an absent key as 0.
+   *
+   * @param key the key, must not be negative
+   * @param delta amount to add
+   * @return the new value
+   */
+  public double addTo(int key, double delta) {
+    int slot = slotFor(key);
+    values[slot] += delta;
+    return values[slot];
+  }
+
+  /**
+   * Gets the slot of a key, inserting the key with a value of 0 if it is absent.
+   *
+   * @param key the key
+   * @return index of the slot
+   */
+  private int slotFor(int key) {
+    if (key < 0) {
+      throw new IllegalArgumentException("Negative key: " + key);
+    }
+    int slot = slotOf(key);
+    for ( ; keys[slot] != EMPTY; slot = (slot + 1) & (keys.length - 1)) {
+      if (keys[slot] == key) {
+        return slot;
+      }
+    }
+    if (size + 1 > keys.length * LOAD_FACTOR) {
+      grow();
+      return slotFor(key);
+    }
+    keys[slot] = key;
+    values[slot] = 0.0;
+    size++;
+    return slot;
+  }
+
+  /**
+   * Removes a key.
+   *
+   * @param key the key
+   * @return the value the key had, 0 if it was absent
+   */
+  public double remove(int key) {
+    int slot = find(key);
+    if (slot < 0) {
+      return 0.0;
+    }
+    double value = values[slot];
+    size--;
+
+    // shift back the entries that probed past the freed slot
+    int mask = keys.length - 1;
+    int free = slot;
+    for (int next = (free + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+      int home = slotOf(keys[next]);
+      boolean movable = free <= next ? home <= free || home > next : home <= free && home > next;
+      if (movable) {
+        keys[free] = keys[next];
+        values[free] = values[next];
+        free = next;
+      }
+    }
+    keys[free] = EMPTY;
+    values[free] = 0.0;
+    return value;
+  }
+
+  /**
+   * Doubles the number of slots and re-inserts every entry.
+   */
+  private void grow() {
+    int[] oldKeys = keys;
+    double[] oldValues = values;
+    keys = new int[oldKeys.length * 2];
+    Arrays.fill(keys, EMPTY);
+    values = new double[oldValues.length * 2];
+    size = 0;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        put(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+
+  /**
+   * Removes all the entries.
+   */
+  public void clear() {
+    Arrays.fill(keys, EMPTY);
+    Arrays.fill(values, 0.0);
+    size = 0;
+  }
+
+  /**
+   * Gets the number of entries.
+   *
+   * @return the size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks if the map has no entries.
+   *
+   * @return true, if the map is empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Gets all the keys, in no particular order.
+   *
+   * @return array of keys
+   */
+  public int[] keys() {
+    int[] result = new int[size];
+    int i = 0;
+    for (int key : keys) {
+      if (key != EMPTY) {
+        result[i++] = key;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Passes every entry to the consumer, in no particular order. The map must not be modified
+   * meanwhile.
+   *
+   * @param consumer receives the entries
+   */
+  public void forEach(EntryConsumer consumer) {
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != EMPTY) {
+        consumer.accept(keys[slot], values[slot]);
+      }
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package application;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds with log-linear buckets, like HdrHistogram: every power of
+ * two is split into 32 buckets, so a recorded value is known to within about 3% at any magnitude
+ * with a fixed footprint. Recording is lock-free and can be done from any number of threads;
+ * reading while recording gives an approximate but consistent enough view for monitoring.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5; // log2 of the buckets per power of two
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  // values below this have a bucket each
+  private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+
+  // enough buckets for Long.MAX_VALUE
+  private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private AtomicLongArray counts; // number of values recorded in each bucket
+  private LongAdder count; // number of values recorded
+  private LongAdder sum; // sum of the values recorded
+  private LongAccumulator max; // largest value recorded
+
+  /**
+   * Creates an empty histogram.
+   */
+  public LatencyHistogram() {
+    counts = new AtomicLongArray(BUCKET_COUNT);
+    count = new LongAdder();
+    sum = new LongAdder();
+    max = new LongAccumulator(Math::max, 0);
+  }
+
+  /**
+   * Records a value.
+   *
+   * @param nanos the value, negative values are recorded as 0
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts.incrementAndGet(bucketOf(value));
+    count.increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  /**
+   * Gets the bucket of a value.
+   */
+  private static int bucketOf(long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  /**
+   * Gets the largest value falling in a bucket.
+   */
+  private static long highestValueOf(int bucket) {
+    if (bucket < LINEAR_LIMIT) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  /**
+   * Gets the number of values recorded.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Gets the mean of the values recorded.
+   *
+   * @return the mean, 0 if nothing was recorded
+   */
+  public double getMean() {
+    long n = count.sum();
+    return n == 0 ? 0.0 : (double) sum.sum() / n;
+  }
+
+  /**
+   * Gets the largest value recorded.
+   *
+   * @return the largest value, 0 if nothing was recorded
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Gets the value below which the given share of the recorded values fall.
+   *
+   * @param percentile the share in percent, between 0 and 100
+   * @return the value, rounded up to the end of its bucket, or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long[] snapshot = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0, percentile) / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(highestValueOf(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Forgets every recorded value.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    count.reset();
+    sum.reset();
+    max.reset();
+  }
+}
@@ -0,0 +1,332 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A meal made of food items and the number of servings of each. Food items are referred to by
+ * their row id in the food data, and the servings are kept in a primitive map from row id to
+ * quantity, so adding the same food twice only raises its quantity. Adding, removing and scaling
+ * cost O(1): the nutrient totals are updated with the nutrient columns of the food data as the
+ * quantities change, and scaling the whole meal only changes a common multiplier.
+ */
+public class Meal {
+
+  private static final Nutrient[] NUTRIENTS = Nutrient.values();
+
+  private FoodData foodData; // the food data the row ids refer to
+
+  private IntDoubleHashMap servings; // servings of each row id, before scaling
+
+  private double scale; // multiplier applied to every quantity
+
+  private double[] totals; // total of each nutrient before scaling, by Nutrient.ordinal()
+
+  private List<Runnable> listeners; // notified whenever the meal changes
+
+  /**
+   * Creates an empty meal.
+   *
+   * @param foodData the food data the meal is made from
+   */
+  public Meal(FoodData foodData) {
+    this.foodData = foodData;
+    servings = new IntDoubleHashMap();
+    scale = 1.0;
+    totals = new double[NUTRIENTS.length];
+    listeners = new ArrayList<>();
+  }
+
+  /**
+   * Adds servings of a row to the meal.
+   *
+   * @param row row id of the food item
+   * @param quantity number of servings to add
+   * @throws IllegalArgumentException if the row id or the quantity is invalid
+   */
+  public void add(int row, double quantity) {
+    checkServing(row, quantity);
+    accumulate(row, quantity / scale);
+    fireChanged();
+  }
+
+  /**
+   * Adds one serving of a food item to the meal.
+   *
+   * @param foodItem the food item
+   */
+  public void add(FoodItem foodItem) {
+    add(rowOf(foodItem), 1.0);
+  }
+
+  /**
+   * Adds one serving of each of the food items with a single notification. Food items that are
+   * not part of the food data, e.g. while a new file is being loaded, are skipped.
+   *
+   * @param foodItems the food items
+   */
+  public void addAll(Collection<FoodItem> foodItems) {
+    for (FoodItem foodItem : foodItems) {
+      int row = foodData.getRow(foodItem);
+      if (row >= 0) {
+        accumulate(row, 1.0 / scale);
+      }
+    }
+    fireChanged();
+  }
+
+  /**
+   * Removes a row and all its servings from the meal.
+   *
+   * @param row row id of the food item
+   */
+  public void remove(int row) {
+    accumulate(row, -servings.get(row));
+    fireChanged();
+  }
+
+  /**
+   * Removes a food item and all its servings from the meal.
+   *
+   * @param foodItem the food item
+   */
+  public void remove(FoodItem foodItem) {
+    remove(rowOf(foodItem));
+  }
+
+  /**
+   * Removes food items and all their servings with a single notification. Food items that are
+   * not part of the food data are skipped.
+   *
+   * @param foodItems the food items
+   */
+  public void removeAll(Collection<FoodItem> foodItems) {
+    for (FoodItem foodItem : foodItems) {
+      int row = foodData.getRow(foodItem);
+      if (row >= 0) {
+        accumulate(row, -servings.get(row));
+      }
+    }
+    fireChanged();
+  }
+
+  /**
+   * Sets the number of servings of a row, removing it if the quantity is 0.
+   *
+   * @param row row id of the food item
+   * @param quantity number of servings
+   * @throws IllegalArgumentException if the row id or the quantity is invalid
+   */
+  public void setQuantity(int row, double quantity) {
+    checkServing(row, quantity);
+    accumulate(row, quantity / scale - servings.get(row));
+    fireChanged();
+  }
+
+  /**
+   * Multiplies the servings of every food item in the meal, e.g. to plan for several people.
+   *
+   * @param factor the multiplier, must be positive
+   */
+  public void scale(double factor) {
+    if (!(factor > 0) || Double.isInfinite(factor)) {
+      throw new IllegalArgumentException("Invalid scale factor: " + factor);
+    }
+    scale *= factor;
+    fireChanged();
+  }
+
+  /**
+   * Removes all the food items from the meal.
+   */
+  public void clear() {
+    servings.clear();
+    scale = 1.0;
+    totals = new double[NUTRIENTS.length];
+    fireChanged();
+  }
+
+  /**
+   * Checks that a row id refers to a food item and that a quantity is a number of servings.
+   *
+   * @param row row id of the food item
+   * @param quantity number of servings
+   * @throws IllegalArgumentException if the row id or the quantity is invalid
+   */
+  private void checkServing(int row, double quantity) {
+    if (row < 0 || row >= foodData.size()) {
+      throw new IllegalArgumentException("Invalid row id: " + row);
+    }
+    if (!(quantity >= 0) || Double.isInfinite(quantity)) {
+      throw new IllegalArgumentException("Invalid quantity: " + quantity);
+    }
+  }
+
+  /**
+   * Changes the unscaled servings of a row and updates the totals with its nutrient values. A
+   * delta removing more than the servings of the row only removes those servings.
+   *
+   * @param row row id of the food item
+   * @param delta servings to add, before scaling
+   */
+  private void accumulate(int row, double delta) {
+    delta = Math.max(delta, -servings.get(row));
+    if (delta == 0.0) {
+      return;
+    }
+    if (servings.addTo(row, delta) <= 0.0) {
+      servings.remove(row);
+    }
+    if (servings.isEmpty()) {
+      // drop the rounding errors left over by the subtractions
+      scale = 1.0;
+      totals = new double[NUTRIENTS.length];
+      return;
+    }
+    for (Nutrient nutrient : NUTRIENTS) {
+      totals[nutrient.ordinal()] += delta * foodData.getNutrientColumn(nutrient)[row];
+    }
+  }
+
+  /**
+   * Recomputes the totals from scratch as the dot product of the servings and the nutrient
+   * columns, dropping any rounding error accumulated by the running totals.
+   */
+  public void recomputeTotals() {
+    int[] rows = servings.keys();
+    double[] quantities = new double[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      quantities[i] = servings.get(rows[i]);
+    }
+    for (Nutrient nutrient : NUTRIENTS) {
+      double[] column = foodData.getNutrientColumn(nutrient);
+      double total = 0.0;
+      for (int i = 0; i < rows.length; i++) {
+        total += quantities[i] * column[rows[i]];
+      }
+      totals[nutrient.ordinal()] = total;
+    }
+    fireChanged();
+  }
+
+  /**
+   * Gets the row id of a food item of the food data.
+   *
+   * @param foodItem the food item
+   * @return its row id
+   * @throws IllegalArgumentException if the food item is not part of the food data
+   */
+  private int rowOf(FoodItem foodItem) {
+    int row = foodData.getRow(foodItem);
+    if (row < 0) {
+      throw new IllegalArgumentException("Unknown food item: " + foodItem.getName());
+    }
+    return row;
+  }
+
+  /**
+   * Gets the total amount of a nutrient in the meal.
+   *
+   * @param nutrient the nutrient
+   * @return the total
+   */
+  public double getTotal(Nutrient nutrient) {
+    return scale * totals[nutrient.ordinal()];
+  }
+
+  /**
+   * Gets the number of servings of a row.
+   *
+   * @param row row id of the food item
+   * @return number of servings, 0 if the row is not in the meal
+   */
+  public double getQuantity(int row) {
+    return scale * servings.get(row);
+  }
+
+  /**
+   * Gets the number of servings of a food item.
+   *
+   * @param foodItem the food item
+   * @return number of servings, 0 if the food item is not in the meal
+   */
+  public double getQuantity(FoodItem foodItem) {
+    int row = foodData.getRow(foodItem);
+    return row < 0 ? 0.0 : getQuantity(row);
+  }
+
+  /**
+   * Checks if a food item is in the meal.
+   *
+   * @param foodItem the food item
+   * @return true, if the meal has servings of the food item
+   */
+  public boolean contains(FoodItem foodItem) {
+    int row = foodData.getRow(foodItem);
+    return row >= 0 && servings.containsKey(row);
+  }
+
+  /**
+   * Gets the row ids of the food items in the meal, in no particular order.
+   *
+   * @return array of row ids
+   */
+  public int[] getRows() {
+    return servings.keys();
+  }
+
+  /**
+   * Gets the food data the row ids refer to.
+   *
+   * @return the food data
+   */
+  public FoodData getFoodData() {
+    return foodData;
+  }
+
+  /**
+   * Gets the number of distinct food items in the meal.
+   *
+   * @return the number of food items
+   */
+  public int size() {
+    return servings.size();
+  }
+
+  /**
+   * Checks if the meal has no food items.
+   *
+   * @return true, if the meal is empty
+   */
+  public boolean isEmpty() {
+    return servings.isEmpty();
+  }
+
+  /**
+   * Registers a listener that is run whenever the meal changes.
+   *
+   * @param listener the listener
+   */
+  public void addListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Unregisters a listener.
+   *
+   * @param listener the listener
+   */
+  public void removeListener(Runnable listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Runs all the listeners.
+   */
+  private void fireChanged() {
+    for (Runnable listener : new ArrayList<>(listeners)) {
+      listener.run();
+    }
+  }
+}
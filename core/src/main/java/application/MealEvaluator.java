@@ -0,0 +1,179 @@
+package application;
+
+import java.util.stream.IntStream;
+
+/**
+ * Evaluates meals against a snapshot of the food data without any user interface. A meal is
+ * given as an array of row ids and an array of the servings of each row. Its nutrient totals are
+ * computed one nutrient column at a time with a plain multiply-add loop, and the caloric
+ * breakdown uses the calories per gram of fat, carbohydrate and protein. Many meals are evaluated
+ * in parallel, each one independently of the others.
+ */
+public class MealEvaluator {
+
+  public static final double CALORIES_PER_FAT = 9.0;
+  public static final double CALORIES_PER_CARB = 4.0;
+  public static final double CALORIES_PER_PROTEIN = 4.0;
+
+  private static final Nutrient[] NUTRIENTS = Nutrient.values();
+
+  private double[][] columns; // nutrient columns by Nutrient.ordinal() and then by row id
+
+  private int rowCount; // number of rows in the snapshot
+
+  /**
+   * The nutrient totals and the caloric breakdown of a single meal.
+   */
+  public static class Evaluation {
+    private double[] totals; // total of each nutrient, indexed by Nutrient.ordinal()
+
+    /**
+     * Creates the evaluation of a meal from its nutrient totals.
+     *
+     * @param totals total of each nutrient, indexed by Nutrient.ordinal()
+     */
+    public Evaluation(double[] totals) {
+      this.totals = totals;
+    }
+
+    /**
+     * Gets the total amount of a nutrient.
+     *
+     * @param nutrient the nutrient
+     * @return the total
+     */
+    public double getTotal(Nutrient nutrient) {
+      return totals[nutrient.ordinal()];
+    }
+
+    /**
+     * Gets the calories coming from fat.
+     *
+     * @return the calories
+     */
+    public double getCaloriesFromFat() {
+      return totals[Nutrient.FATS.ordinal()] * CALORIES_PER_FAT;
+    }
+
+    /**
+     * Gets the calories coming from carbohydrates.
+     *
+     * @return the calories
+     */
+    public double getCaloriesFromCarbohydrates() {
+      return totals[Nutrient.CARBOHYDRATES.ordinal()] * CALORIES_PER_CARB;
+    }
+
+    /**
+     * Gets the calories coming from protein.
+     *
+     * @return the calories
+     */
+    public double getCaloriesFromProtein() {
+      return totals[Nutrient.PROTEINS.ordinal()] * CALORIES_PER_PROTEIN;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("Evaluation [");
+      for (Nutrient nutrient : NUTRIENTS) {
+        sb.append(nutrient.getKey()).append('=').append(totals[nutrient.ordinal()]).append(", ");
+      }
+      return sb.append("caloriesFromFat=").append(getCaloriesFromFat())
+          .append(", caloriesFromCarbohydrates=").append(getCaloriesFromCarbohydrates())
+          .append(", caloriesFromProtein=").append(getCaloriesFromProtein()).append(']')
+          .toString();
+    }
+  }
+
+  /**
+   * Creates an evaluator over a snapshot of the food data. Food items added to the food data
+   * afterwards are not seen by this evaluator.
+   *
+   * @param foodData the food data
+   */
+  public MealEvaluator(FoodData foodData) {
+    columns = foodData.copyNutrientColumns();
+    rowCount = columns[0].length;
+  }
+
+  /**
+   * Gets the number of rows meals can refer to.
+   *
+   * @return the number of rows
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Evaluates a single meal.
+   *
+   * @param rows row ids of the food items of the meal
+   * @param quantities servings of each row
+   * @return the evaluation of the meal
+   * @throws IllegalArgumentException if the arrays differ in length or a row id is out of range
+   */
+  public Evaluation evaluate(int[] rows, double[] quantities) {
+    checkMeal(rows, quantities);
+    double[] totals = new double[NUTRIENTS.length];
+    for (int n = 0; n < NUTRIENTS.length; n++) {
+      totals[n] = dot(columns[n], rows, quantities);
+    }
+    return new Evaluation(totals);
+  }
+
+  /**
+   * Evaluates many meals in parallel.
+   *
+   * @param rows row ids of the food items of each meal
+   * @param quantities servings of each row of each meal
+   * @return the evaluation of each meal, in the order of the meals
+   * @throws IllegalArgumentException if a meal is invalid
+   */
+  public Evaluation[] evaluateAll(int[][] rows, double[][] quantities) {
+    if (rows.length != quantities.length) {
+      throw new IllegalArgumentException(
+          rows.length + " meals but " + quantities.length + " quantity arrays");
+    }
+    Evaluation[] evaluations = new Evaluation[rows.length];
+    IntStream.range(0, rows.length).parallel()
+        .forEach(i -> evaluations[i] = evaluate(rows[i], quantities[i]));
+    return evaluations;
+  }
+
+  /**
+   * Multiplies the servings of each row with the value of the row in a nutrient column and sums
+   * the products. The loop has no branches and reads primitive arrays only.
+   *
+   * @param column the nutrient column
+   * @param rows row ids
+   * @param quantities servings of each row
+   * @return the total of the nutrient
+   */
+  private static double dot(double[] column, int[] rows, double[] quantities) {
+    double total = 0.0;
+    for (int i = 0; i < rows.length; i++) {
+      total += quantities[i] * column[rows[i]];
+    }
+    return total;
+  }
+
+  /**
+   * Checks that a meal only refers to rows of the snapshot.
+   *
+   * @param rows row ids of the meal
+   * @param quantities servings of each row
+   */
+  private void checkMeal(int[] rows, double[] quantities) {
+    if (rows.length != quantities.length) {
+      throw new IllegalArgumentException(
+          rows.length + " rows but " + quantities.length + " quantities");
+    }
+    for (int row : rows) {
+      if (row < 0 || row >= rowCount) {
+        throw new IllegalArgumentException("Invalid row id: " + row);
+      }
+    }
+  }
+}
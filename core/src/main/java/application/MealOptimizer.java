@@ -0,0 +1,426 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Searches for meals whose nutrient totals fall within given targets. A meal is a combination of
+ * distinct food items, one serving each, of at most a given number of items. The search is a
+ * branch-and-bound over the food items: food items that exceed a maximum on their own are
+ * dropped up front with the nutrient range indexes, a branch is cut as soon as one of its totals
+ * goes over a maximum, and also when the remaining items cannot reach a minimum anymore. The
+ * branches of the first item are searched in parallel until the time budget runs out, and the
+ * best meals found are returned.
+ */
+public class MealOptimizer {
+
+  private static final Nutrient[] NUTRIENTS = Nutrient.values();
+
+  private static final int DEADLINE_CHECK_INTERVAL = 1024; // nodes visited between clock reads
+
+  private FoodData foodData; // the food data to build meals from
+
+  private boolean searchComplete; // whether the last search visited every branch
+
+  /**
+   * The minimum and maximum total of each nutrient. Nutrients without a target accept any total.
+   */
+  public static class Targets {
+    private double[] min; // minimum of each nutrient, indexed by Nutrient.ordinal()
+    private double[] max; // maximum of each nutrient, indexed by Nutrient.ordinal()
+
+    /**
+     * Creates targets that accept any meal.
+     */
+    public Targets() {
+      min = new double[NUTRIENTS.length];
+      max = new double[NUTRIENTS.length];
+      Arrays.fill(min, Double.NEGATIVE_INFINITY);
+      Arrays.fill(max, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Copies targets, so that a running search is not affected by later changes.
+     *
+     * @param other the targets to copy
+     */
+    Targets(Targets other) {
+      min = other.min.clone();
+      max = other.max.clone();
+    }
+
+    /**
+     * Sets the minimum and maximum total of a nutrient.
+     *
+     * @param nutrient the nutrient
+     * @param minimum the minimum total
+     * @param maximum the maximum total
+     * @return these targets
+     * @throws IllegalArgumentException if the minimum is above the maximum
+     */
+    public Targets setRange(Nutrient nutrient, double minimum, double maximum) {
+      if (!(minimum <= maximum)) {
+        throw new IllegalArgumentException(
+            "Invalid range for " + nutrient + ": " + minimum + " to " + maximum);
+      }
+      min[nutrient.ordinal()] = minimum;
+      max[nutrient.ordinal()] = maximum;
+      return this;
+    }
+
+    /**
+     * Gets the minimum total of a nutrient.
+     *
+     * @param nutrient the nutrient
+     * @return the minimum, negative infinity if there is none
+     */
+    public double getMin(Nutrient nutrient) {
+      return min[nutrient.ordinal()];
+    }
+
+    /**
+     * Gets the maximum total of a nutrient.
+     *
+     * @param nutrient the nutrient
+     * @return the maximum, positive infinity if there is none
+     */
+    public double getMax(Nutrient nutrient) {
+      return max[nutrient.ordinal()];
+    }
+
+    /**
+     * Scores totals that meet the targets. The score is the squared distance of each total from
+     * the middle of its range, relative to the width of the range, summed over the nutrients
+     * that have both a minimum and a maximum. Lower is better.
+     *
+     * @param totals total of each nutrient, indexed by Nutrient.ordinal()
+     * @return the score
+     */
+    double score(double[] totals) {
+      double score = 0.0;
+      for (int n = 0; n < NUTRIENTS.length; n++) {
+        if (!Double.isInfinite(min[n]) && !Double.isInfinite(max[n])) {
+          double width = Math.max(max[n] - min[n], 1.0);
+          double distance = (totals[n] - (min[n] + max[n]) / 2) / width;
+          score += distance * distance;
+        }
+      }
+      return score;
+    }
+  }
+
+  /**
+   * A meal found by the optimizer.
+   */
+  public static class Solution {
+    private int[] rows; // row ids of the food items of the meal, ascending
+    private MealEvaluator.Evaluation evaluation; // totals of the meal
+    private double score; // distance from the targets, lower is better
+
+    Solution(int[] rows, double[] totals, double score) {
+      this.rows = rows;
+      this.evaluation = new MealEvaluator.Evaluation(totals);
+      this.score = score;
+    }
+
+    /**
+     * Gets the row ids of the food items of the meal.
+     *
+     * @return row ids, ascending
+     */
+    public int[] getRows() {
+      return rows.clone();
+    }
+
+    /**
+     * Gets the nutrient totals and caloric breakdown of the meal.
+     *
+     * @return the evaluation
+     */
+    public MealEvaluator.Evaluation getEvaluation() {
+      return evaluation;
+    }
+
+    /**
+     * Gets the distance of the meal from the targets.
+     *
+     * @return the score, lower is better
+     */
+    public double getScore() {
+      return score;
+    }
+
+    @Override
+    public String toString() {
+      return "Solution [rows=" + Arrays.toString(rows) + ", score=" + score + "]";
+    }
+  }
+
+  /**
+   * Keeps the best solutions found by all the search threads.
+   */
+  private static class BestSolutions {
+    private int capacity; // number of solutions to keep
+    private PriorityQueue<Solution> worstFirst; // the kept solutions, worst on top
+    private volatile double threshold = Double.POSITIVE_INFINITY; // score to beat once full
+
+    BestSolutions(int capacity) {
+      this.capacity = capacity;
+      worstFirst = new PriorityQueue<>(
+          Comparator.comparingDouble(Solution::getScore).reversed());
+    }
+
+    /**
+     * Checks cheaply whether a score could make it into the best solutions.
+     */
+    boolean accepts(double score) {
+      return score < threshold;
+    }
+
+    synchronized void offer(int[] rows, double[] totals, double score) {
+      if (score >= threshold) {
+        return;
+      }
+      worstFirst.add(new Solution(rows, totals, score));
+      if (worstFirst.size() > capacity) {
+        worstFirst.poll();
+      }
+      if (worstFirst.size() == capacity) {
+        threshold = worstFirst.peek().getScore();
+      }
+    }
+
+    synchronized List<Solution> toList() {
+      List<Solution> solutions = new ArrayList<>(worstFirst);
+      solutions.sort(Comparator.comparingDouble(Solution::getScore));
+      return solutions;
+    }
+  }
+
+  /**
+   * The depth-first search below one first item, run by a single thread.
+   */
+  private static class Search implements Callable<Boolean> {
+    private Targets targets;
+    private double[][] values; // nutrient values by Nutrient.ordinal() and then by candidate
+    private double[][] suffixMax; // largest value of each nutrient from a candidate onwards
+    private int[] candidateRows; // row id of each candidate
+    private int maxItems;
+    private long deadline; // System.nanoTime() at which the search stops
+    private BestSolutions best;
+
+    private int first; // candidate the meals of this search start with
+    private int[] chosen; // candidates of the current branch
+    private double[] totals; // totals of the current branch
+    private long nodes; // number of branches visited
+    private boolean timedOut;
+
+    Search(Targets targets, double[][] values, double[][] suffixMax, int[] candidateRows,
+        int maxItems, long deadline, BestSolutions best, int first) {
+      this.targets = targets;
+      this.values = values;
+      this.suffixMax = suffixMax;
+      this.candidateRows = candidateRows;
+      this.maxItems = maxItems;
+      this.deadline = deadline;
+      this.best = best;
+      this.first = first;
+      chosen = new int[maxItems];
+      totals = new double[NUTRIENTS.length];
+    }
+
+    /**
+     * Runs the search.
+     *
+     * @return true, if every branch was visited before the deadline
+     */
+    @Override
+    public Boolean call() {
+      if (System.nanoTime() - deadline >= 0) {
+        return false;
+      }
+      branch(first, 0);
+      return !timedOut;
+    }
+
+    /**
+     * Adds a candidate to the current branch and searches the meals that extend it.
+     *
+     * @param candidate the candidate to add
+     * @param depth number of candidates already in the branch
+     */
+    private void branch(int candidate, int depth) {
+      if (++nodes % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - deadline >= 0) {
+        timedOut = true;
+      }
+      if (timedOut) {
+        return;
+      }
+      chosen[depth] = candidate;
+      depth++;
+      int slotsLeft = maxItems - depth;
+      boolean feasible = true;
+      boolean reachable = true;
+      for (int n = 0; n < NUTRIENTS.length; n++) {
+        totals[n] += values[n][candidate];
+        if (totals[n] > targets.max[n]) {
+          reachable = false;
+        } else if (totals[n] < targets.min[n]) {
+          feasible = false;
+          // the best the remaining slots can add is their count times the largest value left
+          double bound = candidate + 1 < candidateRows.length
+              ? totals[n] + slotsLeft * suffixMax[n][candidate + 1] : totals[n];
+          if (bound < targets.min[n]) {
+            reachable = false;
+          }
+        }
+      }
+      if (reachable) {
+        if (feasible) {
+          record(depth);
+        }
+        if (slotsLeft > 0) {
+          for (int next = candidate + 1; next < candidateRows.length && !timedOut; next++) {
+            branch(next, depth);
+          }
+        }
+      }
+      for (int n = 0; n < NUTRIENTS.length; n++) {
+        totals[n] -= values[n][candidate];
+      }
+    }
+
+    /**
+     * Offers the current branch as a solution.
+     *
+     * @param depth number of candidates in the branch
+     */
+    private void record(int depth) {
+      double score = targets.score(totals);
+      if (best.accepts(score)) {
+        int[] rows = new int[depth];
+        for (int i = 0; i < depth; i++) {
+          rows[i] = candidateRows[chosen[i]];
+        }
+        best.offer(rows, totals.clone(), score);
+      }
+    }
+  }
+
+  /**
+   * Creates an optimizer over the food data.
+   *
+   * @param foodData the food data
+   */
+  public MealOptimizer(FoodData foodData) {
+    this.foodData = foodData;
+  }
+
+  /**
+   * Searches for the meals that best meet the targets within a time budget.
+   *
+   * @param targets the nutrient targets
+   * @param maxItems maximum number of food items in a meal
+   * @param bestCount number of meals to return
+   * @param timeBudgetMillis how long to search for
+   * @return the best meals found, best first
+   * @throws IllegalArgumentException if the item count, meal count or budget is not positive
+   */
+  public synchronized List<Solution> optimize(Targets targets, int maxItems, int bestCount,
+      long timeBudgetMillis) {
+    if (maxItems <= 0 || bestCount <= 0 || timeBudgetMillis <= 0) {
+      throw new IllegalArgumentException(
+          "Item count, meal count and time budget must be positive");
+    }
+    long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+    targets = new Targets(targets);
+
+    // a food item going over a maximum on its own cannot be part of any solution
+    List<String> rules = new ArrayList<>();
+    for (Nutrient nutrient : NUTRIENTS) {
+      if (!Double.isInfinite(targets.getMax(nutrient))) {
+        rules.add(nutrient.getKey() + " <= " + targets.getMax(nutrient));
+      }
+    }
+    BitSet rows;
+    double[][] columns;
+    foodData.getLock().readLock().lock();
+    try {
+      rows = foodData.filterRows(new FoodQuery(null, rules));
+      columns = foodData.copyNutrientColumns();
+    } finally {
+      foodData.getLock().readLock().unlock();
+    }
+
+    // copy the values of the candidates, the bounds assume values are not negative
+    int[] candidateRows = new int[rows.cardinality()];
+    int count = 0;
+    for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+      boolean negative = false;
+      for (double[] column : columns) {
+        negative |= column[row] < 0;
+      }
+      if (!negative) {
+        candidateRows[count++] = row;
+      }
+    }
+    candidateRows = Arrays.copyOf(candidateRows, count);
+    double[][] values = new double[NUTRIENTS.length][count];
+    double[][] suffixMax = new double[NUTRIENTS.length][count];
+    for (int n = 0; n < NUTRIENTS.length; n++) {
+      for (int i = 0; i < count; i++) {
+        values[n][i] = columns[n][candidateRows[i]];
+      }
+      for (int i = count - 1; i >= 0; i--) {
+        suffixMax[n][i] = i + 1 < count ? Math.max(values[n][i], suffixMax[n][i + 1])
+            : values[n][i];
+      }
+    }
+
+    BestSolutions best = new BestSolutions(bestCount);
+    List<Search> searches = new ArrayList<>(count);
+    for (int first = 0; first < count; first++) {
+      searches.add(new Search(targets, values, suffixMax, candidateRows, maxItems, deadline,
+          best, first));
+    }
+    ExecutorService pool =
+        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+          Thread thread = new Thread(runnable, "meal-optimizer");
+          thread.setDaemon(true);
+          return thread;
+        });
+    try {
+      searchComplete = true;
+      for (Future<Boolean> result : pool.invokeAll(searches)) {
+        searchComplete &= result.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      searchComplete = false;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    return best.toList();
+  }
+
+  /**
+   * Checks whether the last search visited every meal before its time budget ran out, in which
+   * case the returned meals are the best ones that exist.
+   *
+   * @return true, if the last search was complete
+   */
+  public synchronized boolean isSearchComplete() {
+    return searchComplete;
+  }
+}
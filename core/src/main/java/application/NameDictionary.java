@@ -0,0 +1,154 @@
+package application;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Dictionary of the distinct food names, ignoring case. Each distinct lower-cased name gets a
+ * code and is stored once as UTF-8 bytes in a shared arena addressed by offsets. FoodData keeps
+ * the code of the name of every row, and a name rule is answered by matching the bytes of each
+ * distinct name once, without creating any string. This is a search structure next to the food
+ * items, not a replacement for their names: the food items still hold their own name strings, so
+ * the dictionary adds to the heap rather than saving any.
+ */
+public class NameDictionary {
+
+  private static final int INITIAL_CAPACITY = 64; // initial number of codes and hash slots
+
+  private byte[] names; // the lower-cased names, one after the other
+  private int[] offsets; // start of each name in names, and the end of the last one
+  private int size; // number of distinct names
+
+  private int[] slots; // open addressing table of code + 1 by hash of the name, 0 when free
+
+  /**
+   * Creates an empty dictionary.
+   */
+  public NameDictionary() {
+    names = new byte[INITIAL_CAPACITY * 16];
+    offsets = new int[INITIAL_CAPACITY + 1];
+    slots = new int[INITIAL_CAPACITY * 2];
+  }
+
+  /**
+   * Gets the code of a name, adding the name if it is new. Names differing only in case share a
+   * code.
+   *
+   * @param name the name
+   * @return the code of the name, from 0 up in the order the names were first added
+   */
+  public int encode(String name) {
+    byte[] bytes = name.toLowerCase().getBytes(StandardCharsets.UTF_8);
+    int hash = hash(bytes, 0, bytes.length);
+    int mask = slots.length - 1;
+    int slot = hash & mask;
+    while (slots[slot] != 0) {
+      int code = slots[slot] - 1;
+      if (Arrays.equals(names, offsets[code], offsets[code + 1], bytes, 0, bytes.length)) {
+        return code;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    int code = size++;
+    if (size == offsets.length) {
+      offsets = Arrays.copyOf(offsets, offsets.length * 2);
+    }
+    int start = offsets[code];
+    if (start + bytes.length > names.length) {
+      names = Arrays.copyOf(names, Math.max(names.length * 2, start + bytes.length));
+    }
+    System.arraycopy(bytes, 0, names, start, bytes.length);
+    offsets[code + 1] = start + bytes.length;
+    slots[slot] = code + 1;
+    if (size * 2 > slots.length) {
+      rehash();
+    }
+    return code;
+  }
+
+  /**
+   * Doubles the hash table.
+   */
+  private void rehash() {
+    slots = new int[slots.length * 2];
+    int mask = slots.length - 1;
+    for (int code = 0; code < size; code++) {
+      int slot = hash(names, offsets[code], offsets[code + 1]) & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = code + 1;
+    }
+  }
+
+  /**
+   * Hashes a range of bytes.
+   */
+  private static int hash(byte[] bytes, int from, int to) {
+    int hash = 1;
+    for (int i = from; i < to; i++) {
+      hash = 31 * hash + bytes[i];
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Finds the names containing a substring, ignoring case.
+   *
+   * @param lowerSubstring the lower-cased substring
+   * @return the codes of the names containing it
+   */
+  public BitSet findCodes(String lowerSubstring) {
+    byte[] needle = lowerSubstring.getBytes(StandardCharsets.UTF_8);
+    BitSet codes = new BitSet(size);
+    for (int code = 0; code < size; code++) {
+      if (contains(names, offsets[code], offsets[code + 1], needle)) {
+        codes.set(code);
+      }
+    }
+    return codes;
+  }
+
+  /**
+   * Tells whether a range of bytes contains the needle.
+   */
+  private static boolean contains(byte[] bytes, int from, int to, byte[] needle) {
+    if (needle.length == 0) {
+      return true;
+    }
+    byte first = needle[0];
+    for (int i = from, last = to - needle.length; i <= last; i++) {
+      if (bytes[i] != first) {
+        continue;
+      }
+      int j = 1;
+      while (j < needle.length && bytes[i + j] == needle[j]) {
+        j++;
+      }
+      if (j == needle.length) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the number of distinct names.
+   *
+   * @return the number of codes
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the bytes used by the names in the arena.
+   *
+   * @return the size of the lower-cased names in bytes
+   */
+  public long getArenaBytes() {
+    return offsets[size];
+  }
+}
@@ -0,0 +1,60 @@
+package application;
+
+/**
+ * The Enum Nutrient.
+ */
+public enum Nutrient {
+
+  FATS("Fat"), PROTEINS("Protein"), CARBOHYDRATES("Carbohydrate"), FIBER("Fiber"), CALORIES(
+      "Calories");
+
+  /** The nutrient type. */
+  private String nutrientType;
+
+  /** The name of the nutrient in the food data files. */
+  private String key;
+
+  /**
+   * Instantiates a new nutrient.
+   *
+   * @param nutrient the nutrient
+   */
+  Nutrient(String nutrient) {
+    this.nutrientType = nutrient;
+    this.key = nutrient.toLowerCase();
+  }
+
+  /**
+   * Gets the nutrient type
+   *
+   * @return the nutrient
+   */
+  public String getNutrient() {
+    return nutrientType;
+  }
+
+  /**
+   * Gets the name of the nutrient as used in the food data files and by FoodItem
+   *
+   * @return the key, e.g. "carbohydrate"
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Finds the nutrient with the given key
+   *
+   * @param key the key, e.g. "carbohydrate"
+   * @return the nutrient, or null if no nutrient has this key
+   */
+  public static Nutrient fromKey(String key) {
+    for (Nutrient nutrient : values()) {
+      if (nutrient.key.equals(key)) {
+        return nutrient;
+      }
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,58 @@
+package application;
+
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+
+/**
+ * A B+ tree from nutrient values to row ids, as used by FoodData for its nutrient indexes. It is
+ * either a BPTree on the heap or a PagedBPTree whose pages are in native memory or in a file.
+ */
+public interface NutrientIndex extends BPTreeADT<Double, Integer>, AutoCloseable {
+
+  /**
+   * Visits the row ids whose key satisfies the range search arguments, in key order, without
+   * collecting them into a list.
+   *
+   * @param key to be searched
+   * @param comparator "<=", "==" or ">="
+   * @param visitor receives the row id of each matching entry
+   * @return number of leaves visited, 0 for invalid arguments
+   */
+  int visitRange(double key, String comparator, IntConsumer visitor);
+
+  /**
+   * Counts the leaves a range search with the same arguments reads.
+   *
+   * @param key to be searched
+   * @param comparator "<=", "==" or ">="
+   * @return number of leaves visited, 0 for invalid arguments
+   */
+  int countLeavesVisited(Double key, String comparator);
+
+  /**
+   * Visits every entry in ascending key order with a single walk along the leaf chain.
+   *
+   * @param visitor receives the key and the row id of each entry
+   */
+  void forEachEntry(BiConsumer<Double, Integer> visitor);
+
+  /**
+   * Gets the number of levels of the tree, 1 when the root is a leaf.
+   *
+   * @return the height
+   */
+  int getHeight();
+
+  /**
+   * Counts the internal and leaf nodes of the tree.
+   *
+   * @return the number of nodes
+   */
+  int getNodeCount();
+
+  /**
+   * Releases the memory or the file of the index.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,235 @@
+package application;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Native memory outside the Java heap, addressed by a long offset from 0. The memory is allocated
+ * with ByteBuffer.allocateDirect in chunks of a fixed size, so the arena grows without copying
+ * and past 2 GB, and the heap only holds one small buffer object per chunk. Values are read and
+ * written at absolute offsets; ints, longs and doubles must be aligned to their size so they never
+ * straddle two chunks, while byte runs may.
+ *
+ * The memory is released by close() instead of waiting for the buffers to be collected. An arena
+ * must not be used once closed.
+ */
+public class OffHeapArena implements AutoCloseable {
+
+  static final int DEFAULT_CHUNK_BITS = 20; // 1 MB chunks
+
+  // Unsafe.invokeCleaner, which frees a direct buffer at once, or null if it is not available
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe = theUnsafe.get(null);
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // the buffers are then released when they are collected
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  private int chunkBits; // log2 of the chunk size
+  private int chunkMask; // chunk size - 1
+  private ByteBuffer[] chunks = new ByteBuffer[8]; // the allocated chunks, in offset order
+  private int chunkCount; // number of allocated chunks
+  private boolean closed; // true once the memory is released
+
+  /**
+   * Creates an empty arena with 1 MB chunks.
+   */
+  public OffHeapArena() {
+    this(DEFAULT_CHUNK_BITS);
+  }
+
+  /**
+   * Creates an empty arena.
+   *
+   * @param chunkBits log2 of the chunk size, from 12 to 30
+   */
+  public OffHeapArena(int chunkBits) {
+    if (chunkBits < 12 || chunkBits > 30) {
+      throw new IllegalArgumentException("Invalid chunk size: 2^" + chunkBits);
+    }
+    this.chunkBits = chunkBits;
+    this.chunkMask = (1 << chunkBits) - 1;
+  }
+
+  /**
+   * Allocates chunks until the arena holds at least the given number of bytes.
+   *
+   * @param capacity the number of bytes needed, from offset 0
+   */
+  public void ensureCapacity(long capacity) {
+    checkOpen();
+    while (getCapacity() < capacity) {
+      if (chunkCount == chunks.length) {
+        chunks = Arrays.copyOf(chunks, chunkCount * 2);
+      }
+      chunks[chunkCount++] = ByteBuffer.allocateDirect(1 << chunkBits);
+    }
+  }
+
+  /**
+   * Gets the number of bytes allocated.
+   *
+   * @return the capacity in bytes
+   */
+  public long getCapacity() {
+    return (long) chunkCount << chunkBits;
+  }
+
+  /**
+   * Gets the chunk holding an offset.
+   */
+  private ByteBuffer chunk(long offset) {
+    return chunks[(int) (offset >>> chunkBits)];
+  }
+
+  /**
+   * Reads the byte at an offset.
+   */
+  public byte get(long offset) {
+    return chunk(offset).get((int) offset & chunkMask);
+  }
+
+  /**
+   * Writes the byte at an offset.
+   */
+  public void put(long offset, byte value) {
+    chunk(offset).put((int) offset & chunkMask, value);
+  }
+
+  /**
+   * Reads the int at an offset.
+   */
+  public int getInt(long offset) {
+    return chunk(offset).getInt((int) offset & chunkMask);
+  }
+
+  /**
+   * Writes the int at an offset.
+   */
+  public void putInt(long offset, int value) {
+    chunk(offset).putInt((int) offset & chunkMask, value);
+  }
+
+  /**
+   * Reads the long at an offset.
+   */
+  public long getLong(long offset) {
+    return chunk(offset).getLong((int) offset & chunkMask);
+  }
+
+  /**
+   * Writes the long at an offset.
+   */
+  public void putLong(long offset, long value) {
+    chunk(offset).putLong((int) offset & chunkMask, value);
+  }
+
+  /**
+   * Reads the double at an offset.
+   */
+  public double getDouble(long offset) {
+    return chunk(offset).getDouble((int) offset & chunkMask);
+  }
+
+  /**
+   * Writes the double at an offset.
+   */
+  public void putDouble(long offset, double value) {
+    chunk(offset).putDouble((int) offset & chunkMask, value);
+  }
+
+  /**
+   * Copies bytes out of the arena.
+   *
+   * @param offset where the bytes start
+   * @param bytes filled with the bytes
+   */
+  public void get(long offset, byte[] bytes) {
+    for (int done = 0; done < bytes.length; ) {
+      int inChunk = (int) offset & chunkMask;
+      int length = Math.min(bytes.length - done, chunkMask + 1 - inChunk);
+      chunk(offset).get(inChunk, bytes, done, length);
+      done += length;
+      offset += length;
+    }
+  }
+
+  /**
+   * Copies bytes into the arena.
+   *
+   * @param offset where the bytes go
+   * @param bytes the bytes
+   */
+  public void put(long offset, byte[] bytes) {
+    for (int done = 0; done < bytes.length; ) {
+      int inChunk = (int) offset & chunkMask;
+      int length = Math.min(bytes.length - done, chunkMask + 1 - inChunk);
+      chunk(offset).put(inChunk, bytes, done, length);
+      done += length;
+      offset += length;
+    }
+  }
+
+  /**
+   * Gets a view of a range of the arena that lies within a single chunk.
+   *
+   * @param offset start of the range
+   * @param length length of the range, with offset a multiple of it and at most the chunk size
+   * @return a buffer whose index 0 is the start of the range
+   */
+  public ByteBuffer slice(long offset, int length) {
+    return chunk(offset).slice((int) offset & chunkMask, length);
+  }
+
+  /**
+   * Releases the memory of the arena.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (int i = 0; i < chunkCount; i++) {
+      free(chunks[i]);
+      chunks[i] = null;
+    }
+    chunkCount = 0;
+  }
+
+  /**
+   * Frees a direct buffer now, if the JDK allows it.
+   */
+  private static void free(ByteBuffer buffer) {
+    if (INVOKE_CLEANER != null) {
+      try {
+        INVOKE_CLEANER.invoke(UNSAFE, buffer);
+      } catch (ReflectiveOperationException e) {
+        // released when collected
+      }
+    }
+  }
+
+  /**
+   * Fails if the arena was closed.
+   */
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Arena is closed");
+    }
+  }
+}
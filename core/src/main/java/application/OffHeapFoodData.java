@@ -0,0 +1,622 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Food data kept in native memory, for catalogs too large to hold as FoodItem objects on the
+ * heap. Every row is a fixed-width record of the row arena holding its nutrient values and the
+ * offset of its text; the id, name and lower-cased name of every row are UTF-8 bytes in the text
+ * arena; the row of every id is found through an open addressing table in a third arena; and the
+ * index of every nutrient is a PagedBPTree over off-heap pages. FoodItem objects are only created
+ * for the food items a method returns, so the heap stays the same size as the catalog grows,
+ * apart from the row sets of the queries.
+ *
+ * The memory is released by close(), after which the food data can no longer be used. The
+ * native memory the JVM may allocate is bounded by -XX:MaxDirectMemorySize, which defaults to
+ * the maximum heap size.
+ */
+public class OffHeapFoodData implements FoodDataADT<FoodItem>, AutoCloseable {
+
+  private static final Nutrient[] NUTRIENTS = Nutrient.values();
+
+  // bytes of a row record: the nutrient values by Nutrient.ordinal(), then the text offset
+  private static final int ROW_BYTES = NUTRIENTS.length * 8 + 8;
+  private static final int TEXT_OFFSET = NUTRIENTS.length * 8;
+
+  // bytes of the header of a text record: the lengths of the id, the name and the lower-cased name
+  private static final int TEXT_HEADER = 12;
+
+  private static final int INITIAL_ID_SLOTS = 1024; // initial capacity of the id table
+
+  private static final Pattern DATA_FORMAT = Pattern.compile(FoodData.DATA_FORMAT_PATTERN);
+
+  private OffHeapArena rows; // ROW_BYTES per row
+  private OffHeapArena text; // text record of every row, 4-byte aligned
+  private long textSize; // bytes used in text
+  private OffHeapArena idSlots; // row + 1 by hash of the id, 0 when free
+  private int idSlotCount; // number of slots, a power of two
+  private PagedBPTree[] indexes; // index of every nutrient, by Nutrient.ordinal()
+  private OffHeapPageStore[] indexPages; // pages of every index
+  private int size; // number of rows
+  private boolean closed; // true once the memory is released
+
+  /**
+   * Creates empty food data.
+   */
+  public OffHeapFoodData() {
+    rows = new OffHeapArena();
+    text = new OffHeapArena();
+    idSlotCount = INITIAL_ID_SLOTS;
+    idSlots = new OffHeapArena();
+    idSlots.ensureCapacity(idSlotCount * 4L);
+    indexes = new PagedBPTree[NUTRIENTS.length];
+    indexPages = new OffHeapPageStore[NUTRIENTS.length];
+    for (int i = 0; i < indexes.length; i++) {
+      indexPages[i] = new OffHeapPageStore();
+      indexes[i] = new PagedBPTree(indexPages[i]);
+    }
+  }
+
+  /**
+   * Creates food data holding the food items of a file.
+   *
+   * @param filePath path of the food item data file
+   * @return the food data, or null if the file could not be loaded
+   */
+  public static OffHeapFoodData fromFile(String filePath) {
+    OffHeapFoodData foodData = new OffHeapFoodData();
+    if (!foodData.parseFoodItems(filePath)) {
+      foodData.close();
+      return null;
+    }
+    return foodData;
+  }
+
+  /*
+   * (non-Javadoc) - replaces the food items with those of a file
+   *
+   * @see application.FoodDataADT#loadFoodItems(java.lang.String)
+   */
+  @Override
+  public void loadFoodItems(String filePath) {
+    OffHeapFoodData loaded = fromFile(filePath);
+    if (loaded == null) {
+      return;
+    }
+    synchronized (this) {
+      checkOpen();
+      closeMemory();
+      rows = loaded.rows;
+      text = loaded.text;
+      textSize = loaded.textSize;
+      idSlots = loaded.idSlots;
+      idSlotCount = loaded.idSlotCount;
+      indexes = loaded.indexes;
+      indexPages = loaded.indexPages;
+      size = loaded.size;
+    }
+  }
+
+  /**
+   * Appends the food items of a file, skipping the lines whose id is already taken.
+   *
+   * @return true if the file was read
+   */
+  private boolean parseFoodItems(String filePath) {
+    double[] values = new double[NUTRIENTS.length];
+    int duplicates = 0;
+    try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        line = line.trim();
+        if (!DATA_FORMAT.matcher(line).matches()) {
+          continue;
+        }
+        String[] lineSplit = line.split(",");
+        for (int i = 2; i < lineSplit.length; i += 2) {
+          values[Nutrient.fromKey(lineSplit[i]).ordinal()] = Double.parseDouble(lineSplit[i + 1]);
+        }
+        if (insert(lineSplit[0], lineSplit[1], values) < 0) {
+          duplicates++;
+        }
+      }
+    } catch (Exception e) {
+      System.out.println(e);
+      return false;
+    }
+    if (duplicates > 0) {
+      System.err.println("Skipped " + duplicates + " food items with duplicate ids");
+    }
+    return true;
+  }
+
+  /**
+   * Appends a row: its nutrient values, its text, its id to the id table and its values to the
+   * indexes.
+   *
+   * @param values the nutrient values by Nutrient.ordinal()
+   * @return the row id, or -1 if another row has the id and nothing was added
+   */
+  private int insert(String id, String name, double[] values) {
+    byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+    int hash = hash(idBytes);
+    if (findRow(idBytes, hash) >= 0) {
+      return -1;
+    }
+    int row = size;
+    long record = (long) row * ROW_BYTES;
+    rows.ensureCapacity(record + ROW_BYTES);
+    for (int i = 0; i < values.length; i++) {
+      rows.putDouble(record + i * 8, values[i]);
+    }
+    rows.putLong(record + TEXT_OFFSET, textSize);
+    textSize = appendText(idBytes, name);
+    size++;
+
+    if (size * 2L > idSlotCount) {
+      growIdSlots();
+    } else {
+      idSlots.putInt(freeSlot(idSlots, idSlotCount, hash) * 4L, row + 1);
+    }
+    for (int i = 0; i < values.length; i++) {
+      indexes[i].insert(values[i], row);
+    }
+    return row;
+  }
+
+  /**
+   * Writes the text record of a new row at the end of the text arena.
+   *
+   * @return the new end of the text arena
+   */
+  private long appendText(byte[] idBytes, String name) {
+    byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+    byte[] lowerBytes = name.toLowerCase().getBytes(StandardCharsets.UTF_8);
+    long end = textSize + TEXT_HEADER + idBytes.length + nameBytes.length + lowerBytes.length;
+    text.ensureCapacity(end);
+    text.putInt(textSize, idBytes.length);
+    text.putInt(textSize + 4, nameBytes.length);
+    text.putInt(textSize + 8, lowerBytes.length);
+    text.put(textSize + TEXT_HEADER, idBytes);
+    text.put(textSize + TEXT_HEADER + idBytes.length, nameBytes);
+    text.put(textSize + TEXT_HEADER + idBytes.length + nameBytes.length, lowerBytes);
+    return (end + 3) & ~3L;
+  }
+
+  /**
+   * Gets the offset of the text record of a row.
+   */
+  private long textOffset(int row) {
+    return rows.getLong((long) row * ROW_BYTES + TEXT_OFFSET);
+  }
+
+  /**
+   * Hashes the UTF-8 bytes of an id.
+   */
+  private static int hash(byte[] bytes) {
+    int hash = 1;
+    for (byte b : bytes) {
+      hash = 31 * hash + b;
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Hashes the id of a row, as {@link #hash(byte[])} does.
+   */
+  private int hashId(int row) {
+    long offset = textOffset(row);
+    int length = text.getInt(offset);
+    int hash = 1;
+    for (long i = offset + TEXT_HEADER; i < offset + TEXT_HEADER + length; i++) {
+      hash = 31 * hash + text.get(i);
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Finds the row of an id in the id table.
+   *
+   * @return the row, or -1 if no row has the id
+   */
+  private int findRow(byte[] idBytes, int hash) {
+    int mask = idSlotCount - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int entry = idSlots.getInt(slot * 4L);
+      if (entry == 0) {
+        return -1;
+      }
+      if (idEquals(entry - 1, idBytes)) {
+        return entry - 1;
+      }
+    }
+  }
+
+  /**
+   * Compares the id of a row with the bytes of an id.
+   */
+  private boolean idEquals(int row, byte[] idBytes) {
+    long offset = textOffset(row);
+    if (text.getInt(offset) != idBytes.length) {
+      return false;
+    }
+    for (int i = 0; i < idBytes.length; i++) {
+      if (text.get(offset + TEXT_HEADER + i) != idBytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Finds the free slot of an id table where an id with the given hash goes.
+   */
+  private static int freeSlot(OffHeapArena slots, int slotCount, int hash) {
+    int mask = slotCount - 1;
+    int slot = hash & mask;
+    while (slots.getInt(slot * 4L) != 0) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Doubles the id table and adds every row to it, keeping it at most half full.
+   */
+  private void growIdSlots() {
+    int slotCount = idSlotCount * 2;
+    OffHeapArena slots = new OffHeapArena();
+    slots.ensureCapacity(slotCount * 4L);
+    for (int row = 0; row < size; row++) {
+      slots.putInt(freeSlot(slots, slotCount, hashId(row)) * 4L, row + 1);
+    }
+    idSlots.close();
+    idSlots = slots;
+    idSlotCount = slotCount;
+  }
+
+  /**
+   * Reads the bytes of a field of the text record of a row and decodes them.
+   *
+   * @param field 0 for the id, 1 for the name
+   */
+  private String readText(int row, int field) {
+    long offset = textOffset(row);
+    long start = offset + TEXT_HEADER;
+    for (int i = 0; i < field; i++) {
+      start += text.getInt(offset + i * 4);
+    }
+    byte[] bytes = new byte[text.getInt(offset + field * 4)];
+    text.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Tells whether the lower-cased name of a row contains the given bytes.
+   */
+  private boolean nameContains(int row, byte[] needle) {
+    long offset = textOffset(row);
+    long from = offset + TEXT_HEADER + text.getInt(offset) + text.getInt(offset + 4);
+    long last = from + text.getInt(offset + 8) - needle.length;
+    for (long i = from; i <= last; i++) {
+      int j = 0;
+      while (j < needle.length && text.get(i + j) == needle[j]) {
+        j++;
+      }
+      if (j == needle.length) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the row ids of all the food items matching a query. The name rule is matched against
+   * the lower-cased names in place, and every nutrient rule is a range search of its index.
+   *
+   * @param query the compiled query
+   * @return set of matching row ids
+   * @throws IllegalArgumentException if a rule names an unknown nutrient
+   */
+  public synchronized BitSet filterRows(FoodQuery query) {
+    checkOpen();
+    BitSet matches = new BitSet(size);
+    if (query.getNameSubstring() != null) {
+      byte[] needle = query.getNameSubstring().getBytes(StandardCharsets.UTF_8);
+      for (int row = 0; row < size; row++) {
+        if (nameContains(row, needle)) {
+          matches.set(row);
+        }
+      }
+    } else {
+      matches.set(0, size);
+    }
+    for (int i = 0; i < query.getRuleCount() && !matches.isEmpty(); i++) {
+      Nutrient nutrient = Nutrient.fromKey(query.getNutrient(i));
+      if (nutrient == null) {
+        throw new IllegalArgumentException("Unknown nutrient: " + query.getNutrient(i));
+      }
+      BitSet ruleRows = new BitSet(size);
+      indexes[nutrient.ordinal()].rangeSearch(query.getValue(i), query.getComparator(i),
+          ruleRows);
+      matches.and(ruleRows);
+    }
+    return matches;
+  }
+
+  /**
+   * Gets all the food items that have a name containing the substring and fulfill all the
+   * nutrient rules.
+   *
+   * @param substring substring to be searched, null or empty for no name rule
+   * @param rules list of nutrient rules, see {@link #filterByNutrients(List)}
+   * @return list of filtered food items in the order they were added
+   */
+  public List<FoodItem> filter(String substring, List<String> rules) {
+    return getFoodItems(filterRows(new FoodQuery(substring, rules)));
+  }
+
+  /*
+   * (non-Javadoc) - filter list of FoodItem according to given substring
+   *
+   * @see application.FoodDataADT#filterByName(java.lang.String)
+   */
+  @Override
+  public List<FoodItem> filterByName(String substring) {
+    return filter(substring, Collections.emptyList());
+  }
+
+  /*
+   * (non-Javadoc) - filter list of FoodItem according to given list of rules
+   *
+   * @see application.FoodDataADT#filterByNutrients(java.util.List)
+   */
+  @Override
+  public List<FoodItem> filterByNutrients(List<String> rules) {
+    return filter(null, rules);
+  }
+
+  /*
+   * (non-Javadoc) - adds a food item, its values being copied to native memory
+   *
+   * @see application.FoodDataADT#addFoodItem(application.FoodItem)
+   */
+  @Override
+  public synchronized void addFoodItem(FoodItem foodItem) {
+    checkOpen();
+    double[] values = new double[NUTRIENTS.length];
+    for (Nutrient nutrient : NUTRIENTS) {
+      values[nutrient.ordinal()] = foodItem.getNutrientValue(nutrient.getKey());
+    }
+    if (insert(foodItem.getID(), foodItem.getName(), values) < 0) {
+      throw new IllegalArgumentException("Duplicate id: " + foodItem.getID());
+    }
+  }
+
+  /**
+   * Creates the food item of a row.
+   *
+   * @param row the row id
+   * @return a new food item
+   */
+  public synchronized FoodItem getFoodItem(int row) {
+    checkOpen();
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+    }
+    FoodItem foodItem = new FoodItem(readText(row, 0), readText(row, 1));
+    for (Nutrient nutrient : NUTRIENTS) {
+      foodItem.addNutrient(nutrient.getKey(),
+          rows.getDouble((long) row * ROW_BYTES + nutrient.ordinal() * 8));
+    }
+    return foodItem;
+  }
+
+  /**
+   * Creates the food items of the given row ids.
+   *
+   * @param matches set of row ids
+   * @return list of new food items in row order
+   */
+  public synchronized List<FoodItem> getFoodItems(BitSet matches) {
+    List<FoodItem> foodItems = new ArrayList<>(matches.cardinality());
+    for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+      foodItems.add(getFoodItem(row));
+    }
+    return foodItems;
+  }
+
+  /**
+   * Creates the food item with the given id.
+   *
+   * @param id the id
+   * @return a new food item, or null if no food item has the id
+   */
+  public synchronized FoodItem getById(String id) {
+    int row = getRowById(id);
+    return row < 0 ? null : getFoodItem(row);
+  }
+
+  /**
+   * Gets the row id of the food item with the given id.
+   *
+   * @param id the id
+   * @return the row id, or -1 if no food item has the id
+   */
+  public synchronized int getRowById(String id) {
+    checkOpen();
+    byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+    return findRow(idBytes, hash(idBytes));
+  }
+
+  /**
+   * Gets a nutrient value of a row without creating its food item.
+   *
+   * @param row the row id
+   * @param nutrient the nutrient
+   * @return the value
+   */
+  public synchronized double getNutrientValue(int row, Nutrient nutrient) {
+    checkOpen();
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+    }
+    return rows.getDouble((long) row * ROW_BYTES + nutrient.ordinal() * 8);
+  }
+
+  /*
+   * (non-Javadoc) - creates every food item, meant for small catalogs only
+   *
+   * @see application.FoodDataADT#getAllFoodItems()
+   */
+  @Override
+  public synchronized List<FoodItem> getAllFoodItems() {
+    List<FoodItem> foodItems = new ArrayList<>(size);
+    for (int row = 0; row < size; row++) {
+      foodItems.add(getFoodItem(row));
+    }
+    return foodItems;
+  }
+
+  /*
+   * (non-Javadoc) - saves the food items sorted by name, one food item object at a time
+   *
+   * @see application.FoodDataADT#saveFoodItems(java.lang.String)
+   */
+  @Override
+  public synchronized void saveFoodItems(String fileName) {
+    checkOpen();
+    try (PrintWriter pw = new PrintWriter(fileName, StandardCharsets.UTF_8)) {
+      for (int row : rowsByName()) {
+        FoodItemFormat.appendFileRecord(pw, getFoodItem(row));
+        pw.append('\n');
+      }
+    } catch (Exception e) {
+      System.out.println(e);
+    }
+  }
+
+  /**
+   * Sorts the row ids by name with a merge sort, comparing the names in place. Rows with the
+   * same name stay in row order.
+   *
+   * @return the row ids, sorted
+   */
+  private int[] rowsByName() {
+    int[] sorted = new int[size];
+    for (int row = 0; row < size; row++) {
+      sorted[row] = row;
+    }
+    int[] merged = new int[size];
+    for (int width = 1; width < size; width *= 2) {
+      for (int from = 0; from < size; from += 2 * width) {
+        int mid = Math.min(from + width, size);
+        int to = Math.min(from + 2 * width, size);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+          if (right == to || left < mid && compareNames(sorted[left], sorted[right]) <= 0) {
+            merged[i] = sorted[left++];
+          } else {
+            merged[i] = sorted[right++];
+          }
+        }
+      }
+      int[] swap = sorted;
+      sorted = merged;
+      merged = swap;
+    }
+    return sorted;
+  }
+
+  /**
+   * Compares the UTF-8 names of two rows byte by byte, which orders them by code point.
+   */
+  private int compareNames(int row1, int row2) {
+    long offset1 = textOffset(row1);
+    long offset2 = textOffset(row2);
+    long start1 = offset1 + TEXT_HEADER + text.getInt(offset1);
+    long start2 = offset2 + TEXT_HEADER + text.getInt(offset2);
+    int length1 = text.getInt(offset1 + 4);
+    int length2 = text.getInt(offset2 + 4);
+    for (int i = 0; i < Math.min(length1, length2); i++) {
+      int c = Integer.compare(text.get(start1 + i) & 0xff, text.get(start2 + i) & 0xff);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return Integer.compare(length1, length2);
+  }
+
+  /**
+   * Gets the number of food items.
+   *
+   * @return the number of rows
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Gets the index of a nutrient.
+   *
+   * @param nutrient the nutrient
+   * @return its index
+   */
+  public synchronized PagedBPTree getIndex(Nutrient nutrient) {
+    checkOpen();
+    return indexes[nutrient.ordinal()];
+  }
+
+  /**
+   * Gets the native memory allocated by the rows, the text, the id table and the indexes.
+   *
+   * @return the number of bytes
+   */
+  public synchronized long getOffHeapBytes() {
+    long bytes = rows.getCapacity() + text.getCapacity() + idSlots.getCapacity();
+    for (OffHeapPageStore pages : indexPages) {
+      bytes += pages.getBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Releases the native memory. The food data cannot be used afterwards.
+   */
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      closeMemory();
+    }
+  }
+
+  /**
+   * Releases the arenas and the indexes.
+   */
+  private void closeMemory() {
+    rows.close();
+    text.close();
+    idSlots.close();
+    for (PagedBPTree index : indexes) {
+      index.close();
+    }
+  }
+
+  /**
+   * Fails if the food data was closed.
+   */
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Food data is closed");
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package application;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pages kept in native memory, in an OffHeapArena. Every page stays in memory, so pinning a page
+ * only hands out a view of it.
+ */
+public class OffHeapPageStore implements PageStore {
+
+  static final int DEFAULT_PAGE_SIZE = 4096; // bytes per page
+
+  private OffHeapArena arena; // the pages, one after the other
+  private int pageSize; // bytes per page, a power of two
+  private int pageCount; // number of pages allocated
+
+  /**
+   * Creates an empty store of 4 KB pages.
+   */
+  public OffHeapPageStore() {
+    this(DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Creates an empty store.
+   *
+   * @param pageSize bytes per page, a power of two from 256 to 1 MB
+   */
+  public OffHeapPageStore(int pageSize) {
+    if (pageSize < 256 || pageSize > (1 << OffHeapArena.DEFAULT_CHUNK_BITS)
+        || Integer.bitCount(pageSize) != 1) {
+      throw new IllegalArgumentException("Invalid page size: " + pageSize);
+    }
+    this.pageSize = pageSize;
+    arena = new OffHeapArena();
+  }
+
+  @Override
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  @Override
+  public int getPageCount() {
+    return pageCount;
+  }
+
+  /**
+   * Gets the native memory allocated for the pages.
+   *
+   * @return the number of bytes
+   */
+  public long getBytes() {
+    return arena.getCapacity();
+  }
+
+  @Override
+  public int allocatePage() {
+    int page = pageCount++;
+    arena.ensureCapacity((long) pageCount * pageSize);
+    return page;
+  }
+
+  @Override
+  public ByteBuffer pin(int page) {
+    if (page < 0 || page >= pageCount) {
+      throw new IndexOutOfBoundsException("Page " + page + " of " + pageCount);
+    }
+    return arena.slice((long) page * pageSize, pageSize);
+  }
+
+  @Override
+  public void unpin(int page, boolean dirty) {
+    // the page stays in memory
+  }
+
+  @Override
+  public int prefetch(int[] pages, int from, int to) {
+    return to; // every page is in memory
+  }
+
+  @Override
+  public void flush() {
+    // nothing is stored elsewhere
+  }
+
+  @Override
+  public void close() {
+    arena.close();
+  }
+}
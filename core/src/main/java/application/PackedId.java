@@ -0,0 +1,113 @@
+package application;
+
+/**
+ * Packs food item ids into two longs. The generated ids are 24 lower-case letters and digits,
+ * which take 12 characters per long in base 37: one digit per character, 0 marking the end of a
+ * shorter id. Ids that are longer or hold other characters, e.g. upper-case letters, cannot be
+ * packed and are kept as strings by the callers.
+ */
+public final class PackedId {
+
+  static final int MAX_LENGTH = 24; // longest id that can be packed
+  private static final int CHARS_PER_LONG = MAX_LENGTH / 2;
+  private static final int RADIX = 37; // 36 characters and the end marker
+
+  private PackedId() {}
+
+  /**
+   * Tells whether an id can be packed.
+   *
+   * @param id the id
+   * @return true if it is at most 24 lower-case letters and digits
+   */
+  public static boolean canPack(String id) {
+    if (id.length() > MAX_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < id.length(); i++) {
+      if (digit(id.charAt(i)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Packs the first 12 characters of an id.
+   *
+   * @param id an id for which canPack is true
+   * @return the high long of the id
+   */
+  public static long high(String id) {
+    return pack(id, 0);
+  }
+
+  /**
+   * Packs the characters 12 to 23 of an id.
+   *
+   * @param id an id for which canPack is true
+   * @return the low long of the id
+   */
+  public static long low(String id) {
+    return pack(id, CHARS_PER_LONG);
+  }
+
+  /**
+   * Packs 12 characters of an id, padding it with end markers.
+   */
+  private static long pack(String id, int from) {
+    long packed = 0;
+    for (int i = from; i < from + CHARS_PER_LONG; i++) {
+      packed = packed * RADIX + (i < id.length() ? digit(id.charAt(i)) : 0);
+    }
+    return packed;
+  }
+
+  /**
+   * Gets the digit of a character.
+   *
+   * @return 1 to 36, or 0 if the character cannot be packed
+   */
+  private static int digit(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0' + 1;
+    }
+    if (c >= 'a' && c <= 'z') {
+      return c - 'a' + 11;
+    }
+    return 0;
+  }
+
+  /**
+   * Unpacks an id.
+   *
+   * @param high the high long of the id
+   * @param low the low long of the id
+   * @return the id
+   */
+  public static String unpack(long high, long low) {
+    char[] chars = new char[MAX_LENGTH];
+    unpack(high, chars, 0);
+    unpack(low, chars, CHARS_PER_LONG);
+    int length = 0;
+    while (length < MAX_LENGTH && chars[length] != 0) {
+      length++;
+    }
+    return new String(chars, 0, length);
+  }
+
+  /**
+   * Unpacks 12 characters, leaving end markers as 0.
+   */
+  private static void unpack(long packed, char[] chars, int from) {
+    for (int i = from + CHARS_PER_LONG - 1; i >= from; i--) {
+      int digit = (int) (packed % RADIX);
+      packed /= RADIX;
+      if (digit == 0) {
+        chars[i] = 0;
+      } else {
+        chars[i] = digit <= 10 ? (char) ('0' + digit - 1) : (char) ('a' + digit - 11);
+      }
+    }
+  }
+}
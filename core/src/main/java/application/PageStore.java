@@ -0,0 +1,71 @@
+package application;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size pages numbered from 0, as read and written by PagedBPTree. A page is pinned while it
+ * is used, and its buffer is only valid until it is unpinned, so a store may keep just some of
+ * its pages in memory at a time, as FilePageStore does.
+ */
+public interface PageStore extends AutoCloseable {
+
+  /**
+   * Gets the size of a page.
+   *
+   * @return the page size in bytes
+   */
+  int getPageSize();
+
+  /**
+   * Gets the number of pages allocated.
+   *
+   * @return the number of pages
+   */
+  int getPageCount();
+
+  /**
+   * Allocates a new page, filled with zeros.
+   *
+   * @return the number of the new page
+   */
+  int allocatePage();
+
+  /**
+   * Pins a page, keeping it in memory until it is unpinned.
+   *
+   * @param page the page number
+   * @return a buffer whose index 0 is the start of the page
+   */
+  ByteBuffer pin(int page);
+
+  /**
+   * Unpins a page pinned by {@link #pin(int)}.
+   *
+   * @param page the page number
+   * @param dirty true if the page was modified while pinned
+   */
+  void unpin(int page, boolean dirty);
+
+  /**
+   * Asks for pages that are about to be pinned, e.g. the next leaves of a range search, so a
+   * store that reads pages from a file can read them ahead together.
+   *
+   * @param pages the page numbers
+   * @param from index of the first page to prefetch
+   * @param to index after the last page to prefetch
+   * @return index after the last page taken care of, less than to if the store has no room for
+   *         more pages yet
+   */
+  int prefetch(int[] pages, int from, int to);
+
+  /**
+   * Writes the modified pages to their storage, if the store has one.
+   */
+  void flush();
+
+  /**
+   * Releases the pages.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,636 @@
+package application;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+
+/**
+ * A B+ tree of nutrient values and row ids whose nodes are fixed-size pages of a PageStore
+ * instead of objects, so the index can live outside the heap. Page 0 holds the root page, the
+ * height and the number of entries, every other page is a node:
+ *
+ * <pre>
+ * leaf:     type, count, next leaf, keys[leafCapacity], rows[leafCapacity]
+ * internal: type, count, unused,    keys[capacity], rows[capacity], children[capacity + 1]
+ * </pre>
+ *
+ * Entries are ordered by key and then by row, which keeps the entries of a duplicated key apart,
+ * so separators are (key, row) pairs. The leaves are chained in key order for range searches,
+ * which read the next leaves ahead once they go past their first leaf, see LeafWalk. Each method
+ * pins at most one page per level of the tree plus two at a time. Searches only read the pages,
+ * so several threads can search at once as long as no entry is being inserted.
+ */
+public class PagedBPTree implements NutrientIndex {
+
+  private static final String LESS = "<=";
+  private static final String GREATER = ">=";
+  private static final String EQUAL = "==";
+
+  private static final int MAGIC = 0x42505431; // "BPT1"
+  private static final int META_PAGE = 0;
+  private static final int META_MAGIC = 0; // int
+  private static final int META_ROOT = 4; // int: page of the root
+  private static final int META_HEIGHT = 8; // int: levels of the tree
+  private static final int META_SIZE = 16; // long: number of entries
+
+  private static final int TYPE = 0; // byte: LEAF or INTERNAL
+  private static final int COUNT = 4; // int: entries of a leaf or separators of an internal node
+  private static final int NEXT = 8; // int: next leaf in key order, NO_PAGE for the last one
+  private static final int HEADER = 16; // bytes before the keys
+
+  private static final byte LEAF = 0;
+  private static final byte INTERNAL = 1;
+  private static final int NO_PAGE = -1;
+
+  static final int DEFAULT_PREFETCH_LEAVES = 32; // leaves read ahead by a walk along the chain
+
+  private PageStore pages; // the pages of the tree
+  private int leafCapacity; // entries per leaf
+  private int capacity; // separators per internal node
+  private int root; // page of the root
+  private int height; // levels of the tree, 1 when the root is a leaf
+  private long size; // number of entries
+  private int prefetchLeaves = DEFAULT_PREFETCH_LEAVES; // leaves read ahead, 0 for none
+
+  // separator and new right sibling of the last node split, for the parent to insert
+  private double splitKey;
+  private int splitRow;
+  private int splitPage;
+
+  /**
+   * Opens the tree stored in a page store, or creates an empty one if the store has no pages.
+   *
+   * @param pages the page store, owned by the tree from now on
+   * @throws IllegalArgumentException if the pages are too small or do not hold a tree
+   */
+  public PagedBPTree(PageStore pages) {
+    this.pages = pages;
+    leafCapacity = (pages.getPageSize() - HEADER) / 12;
+    capacity = (pages.getPageSize() - HEADER - 4) / 16;
+    if (capacity < 3) {
+      throw new IllegalArgumentException("Page size too small: " + pages.getPageSize());
+    }
+    if (pages.getPageCount() == 0) {
+      pages.allocatePage();
+      root = pages.allocatePage();
+      ByteBuffer leaf = pages.pin(root);
+      leaf.put(TYPE, LEAF);
+      leaf.putInt(NEXT, NO_PAGE);
+      pages.unpin(root, true);
+      height = 1;
+      writeMeta();
+    } else {
+      ByteBuffer meta = pages.pin(META_PAGE);
+      int magic = meta.getInt(META_MAGIC);
+      root = meta.getInt(META_ROOT);
+      height = meta.getInt(META_HEIGHT);
+      size = meta.getLong(META_SIZE);
+      pages.unpin(META_PAGE, false);
+      if (magic != MAGIC) {
+        throw new IllegalArgumentException("Not a B+ tree");
+      }
+    }
+  }
+
+  /**
+   * Writes the root, the height and the size to the meta page.
+   */
+  private void writeMeta() {
+    ByteBuffer meta = pages.pin(META_PAGE);
+    meta.putInt(META_MAGIC, MAGIC);
+    meta.putInt(META_ROOT, root);
+    meta.putInt(META_HEIGHT, height);
+    meta.putLong(META_SIZE, size);
+    pages.unpin(META_PAGE, true);
+  }
+
+  private int leafRow(int i) {
+    return HEADER + leafCapacity * 8 + i * 4;
+  }
+
+  private int separatorRow(int i) {
+    return HEADER + capacity * 8 + i * 4;
+  }
+
+  private int child(int i) {
+    return HEADER + capacity * 12 + i * 4;
+  }
+
+  /**
+   * Compares two entries by key, then by row.
+   */
+  private static int compare(double key1, int row1, double key2, int row2) {
+    int c = Double.compare(key1, key2);
+    return c != 0 ? c : Integer.compare(row1, row2);
+  }
+
+  /**
+   * Inserts an entry into the tree.
+   *
+   * @param key the nutrient value
+   * @param value the row id
+   */
+  @Override
+  public void insert(Double key, Integer value) {
+    if (key == null || value == null) {
+      throw new IllegalArgumentException("Null key or value");
+    }
+    insert(key.doubleValue(), value.intValue());
+  }
+
+  /**
+   * Inserts an entry into the tree without boxing.
+   *
+   * @param key the nutrient value
+   * @param row the row id
+   */
+  public void insert(double key, int row) {
+    if (insert(root, height, key, row)) {
+      int newRoot = pages.allocatePage();
+      ByteBuffer node = pages.pin(newRoot);
+      node.put(TYPE, INTERNAL);
+      node.putInt(COUNT, 1);
+      node.putDouble(HEADER, splitKey);
+      node.putInt(separatorRow(0), splitRow);
+      node.putInt(child(0), root);
+      node.putInt(child(1), splitPage);
+      pages.unpin(newRoot, true);
+      root = newRoot;
+      height++;
+    }
+    size++;
+    writeMeta();
+  }
+
+  /**
+   * Inserts an entry into the subtree of a node.
+   *
+   * @return true if the node was split, the separator and the new sibling being in the split
+   *         fields
+   */
+  private boolean insert(int page, int level, double key, int row) {
+    ByteBuffer node = pages.pin(page);
+    boolean dirty = level == 1;
+    boolean split = false;
+    try {
+      if (level == 1) {
+        split = insertIntoLeaf(node, key, row);
+      } else {
+        int count = node.getInt(COUNT);
+        int c = upperBound(node, count, key, row);
+        if (insert(node.getInt(child(c)), level - 1, key, row)) {
+          dirty = true;
+          split = insertSeparator(node, c, splitKey, splitRow, splitPage);
+        }
+      }
+    } finally {
+      pages.unpin(page, dirty);
+    }
+    return split;
+  }
+
+  /**
+   * Counts the separators of an internal node up to an entry.
+   *
+   * @return the index of the child whose subtree holds the entry
+   */
+  private int upperBound(ByteBuffer node, int count, double key, int row) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compare(node.getDouble(HEADER + mid * 8), node.getInt(separatorRow(mid)), key,
+          row) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Finds the first entry of a leaf with a key of at least the given key.
+   *
+   * @return its index, or the count if there is none
+   */
+  private static int lowerBound(ByteBuffer leaf, int count, double key) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (Double.compare(leaf.getDouble(HEADER + mid * 8), key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Inserts an entry into a leaf, splitting it in two halves if it is full.
+   *
+   * @return true if the leaf was split
+   */
+  private boolean insertIntoLeaf(ByteBuffer leaf, double key, int row) {
+    int count = leaf.getInt(COUNT);
+    int position = count;
+    while (position > 0 && compare(leaf.getDouble(HEADER + (position - 1) * 8),
+        leaf.getInt(leafRow(position - 1)), key, row) > 0) {
+      position--;
+    }
+    if (count < leafCapacity) {
+      putLeafEntry(leaf, count, position, key, row);
+      return false;
+    }
+
+    FoodDataEvents.IndexSplit event = new FoodDataEvents.IndexSplit();
+    event.begin();
+    int half = count / 2;
+    int rightPage = pages.allocatePage();
+    ByteBuffer right = pages.pin(rightPage);
+    right.put(TYPE, LEAF);
+    for (int i = half; i < count; i++) {
+      right.putDouble(HEADER + (i - half) * 8, leaf.getDouble(HEADER + i * 8));
+      right.putInt(leafRow(i - half), leaf.getInt(leafRow(i)));
+    }
+    right.putInt(COUNT, count - half);
+    right.putInt(NEXT, leaf.getInt(NEXT));
+    leaf.putInt(COUNT, half);
+    leaf.putInt(NEXT, rightPage);
+    if (position <= half) {
+      putLeafEntry(leaf, half, position, key, row);
+    } else {
+      putLeafEntry(right, count - half, position - half, key, row);
+    }
+    splitKey = right.getDouble(HEADER);
+    splitRow = right.getInt(leafRow(0));
+    splitPage = rightPage;
+    pages.unpin(rightPage, true);
+    commitSplit(event, true, count - half);
+    return true;
+  }
+
+  /**
+   * Inserts an entry at a position of a leaf that is not full.
+   */
+  private void putLeafEntry(ByteBuffer leaf, int count, int position, double key, int row) {
+    for (int i = count; i > position; i--) {
+      leaf.putDouble(HEADER + i * 8, leaf.getDouble(HEADER + (i - 1) * 8));
+      leaf.putInt(leafRow(i), leaf.getInt(leafRow(i - 1)));
+    }
+    leaf.putDouble(HEADER + position * 8, key);
+    leaf.putInt(leafRow(position), row);
+    leaf.putInt(COUNT, count + 1);
+  }
+
+  /**
+   * Inserts a separator and the child to its right into an internal node, splitting the node
+   * around its middle separator if it is full.
+   *
+   * @param position index of the separator, the child going at position + 1
+   * @return true if the node was split
+   */
+  private boolean insertSeparator(ByteBuffer node, int position, double key, int row,
+      int childPage) {
+    int count = node.getInt(COUNT);
+    if (count < capacity) {
+      putSeparator(node, count, position, key, row, childPage);
+      return false;
+    }
+
+    FoodDataEvents.IndexSplit event = new FoodDataEvents.IndexSplit();
+    event.begin();
+    int mid = count / 2;
+    int rightPage = pages.allocatePage();
+    ByteBuffer right = pages.pin(rightPage);
+    right.put(TYPE, INTERNAL);
+    for (int i = mid + 1; i < count; i++) {
+      right.putDouble(HEADER + (i - mid - 1) * 8, node.getDouble(HEADER + i * 8));
+      right.putInt(separatorRow(i - mid - 1), node.getInt(separatorRow(i)));
+    }
+    for (int i = mid + 1; i <= count; i++) {
+      right.putInt(child(i - mid - 1), node.getInt(child(i)));
+    }
+    right.putInt(COUNT, count - mid - 1);
+    right.putInt(NEXT, NO_PAGE);
+    node.putInt(COUNT, mid);
+    double middleKey = node.getDouble(HEADER + mid * 8);
+    int middleRow = node.getInt(separatorRow(mid));
+    if (position <= mid) {
+      putSeparator(node, mid, position, key, row, childPage);
+    } else {
+      putSeparator(right, count - mid - 1, position - mid - 1, key, row, childPage);
+    }
+    splitKey = middleKey;
+    splitRow = middleRow;
+    splitPage = rightPage;
+    pages.unpin(rightPage, true);
+    commitSplit(event, false, count - mid - 1);
+    return true;
+  }
+
+  /**
+   * Inserts a separator at a position of an internal node that is not full.
+   */
+  private void putSeparator(ByteBuffer node, int count, int position, double key, int row,
+      int childPage) {
+    for (int i = count; i > position; i--) {
+      node.putDouble(HEADER + i * 8, node.getDouble(HEADER + (i - 1) * 8));
+      node.putInt(separatorRow(i), node.getInt(separatorRow(i - 1)));
+      node.putInt(child(i + 1), node.getInt(child(i)));
+    }
+    node.putDouble(HEADER + position * 8, key);
+    node.putInt(separatorRow(position), row);
+    node.putInt(child(position + 1), childPage);
+    node.putInt(COUNT, count + 1);
+  }
+
+  /**
+   * Completes the flight recorder event of a node split, if it is being recorded.
+   */
+  private void commitSplit(FoodDataEvents.IndexSplit event, boolean leaf, int keysMoved) {
+    if (event.shouldCommit()) {
+      event.leaf = leaf;
+      event.keysMoved = keysMoved;
+      event.branchingFactor = leaf ? leafCapacity : capacity + 1;
+      event.commit();
+    }
+  }
+
+  /**
+   * Gets the row ids whose key satisfies the range search arguments.
+   *
+   * @param key to be searched
+   * @param comparator "<=", "==" or ">="
+   * @return row ids in key order, empty for invalid arguments
+   */
+  @Override
+  public List<Integer> rangeSearch(Double key, String comparator) {
+    if (key == null || !isComparator(comparator)) {
+      return Collections.emptyList();
+    }
+    List<Integer> values = new ArrayList<>();
+    scan(key, comparator, values::add);
+    return values;
+  }
+
+  /**
+   * Adds the row ids whose key satisfies the range search arguments to a set, without boxing.
+   *
+   * @param key to be searched
+   * @param comparator "<=", "==" or ">="
+   * @param rows set receiving the row ids
+   * @return number of entries matched
+   */
+  public int rangeSearch(double key, String comparator, BitSet rows) {
+    if (!isComparator(comparator)) {
+      return 0;
+    }
+    int[] matched = new int[1];
+    scan(key, comparator, row -> {
+      rows.set(row);
+      matched[0]++;
+    });
+    return matched[0];
+  }
+
+  /**
+   * Visits the row ids whose key satisfies the range search arguments, in key order.
+   *
+   * @param key to be searched
+   * @param comparator "<=", "==" or ">="
+   * @param visitor receives the row id of each matching entry
+   * @return number of leaves visited, 0 for invalid arguments
+   */
+  @Override
+  public int visitRange(double key, String comparator, IntConsumer visitor) {
+    if (!isComparator(comparator)) {
+      return 0;
+    }
+    return scan(key, comparator, visitor);
+  }
+
+  /**
+   * Counts the leaves a range search with the same arguments reads.
+   *
+   * @param key to be searched
+   * @param comparator "<=", "==" or ">="
+   * @return number of leaves visited, 0 for invalid arguments
+   */
+  @Override
+  public int countLeavesVisited(Double key, String comparator) {
+    if (key == null || !isComparator(comparator)) {
+      return 0;
+    }
+    return scan(key, comparator, row -> {});
+  }
+
+  private static boolean isComparator(String comparator) {
+    return LESS.equals(comparator) || GREATER.equals(comparator) || EQUAL.equals(comparator);
+  }
+
+  /**
+   * Walks the leaf chain from the first leaf that may hold a match, visiting the row of every
+   * matching entry.
+   *
+   * @return number of leaves visited
+   */
+  private int scan(double key, String comparator, IntConsumer visitor) {
+    boolean less = LESS.equals(comparator);
+    boolean greater = GREATER.equals(comparator);
+    LeafWalk walk = new LeafWalk(less ? Double.NEGATIVE_INFINITY : key, Integer.MIN_VALUE);
+    int visited = 0;
+    while (walk.page != NO_PAGE) {
+      int page = walk.page;
+      ByteBuffer leaf = pages.pin(page);
+      visited++;
+      int count = leaf.getInt(COUNT);
+      int i = less || visited > 1 ? 0 : lowerBound(leaf, count, key);
+      for (; i < count; i++) {
+        if (!greater && Double.compare(leaf.getDouble(HEADER + i * 8), key) > 0) {
+          pages.unpin(page, false);
+          return visited;
+        }
+        visitor.accept(leaf.getInt(leafRow(i)));
+      }
+      walk.advance(leaf);
+      pages.unpin(page, false);
+    }
+    return visited;
+  }
+
+  /**
+   * A walk along the leaf chain that reads the next leaves ahead. The parent of a leaf lists the
+   * leaves that follow it in chain order, so the walk keeps the leaves after the current one
+   * under the same parent, and once it has moved past its first leaf, asks the page store for a
+   * window of them ahead of the walk. When it passes to the leaves of another parent, it descends
+   * again from the root to get them.
+   */
+  private class LeafWalk {
+    private int page; // the current leaf, NO_PAGE past the last one
+    private int[] siblings = new int[capacity + 1]; // leaves after the first one of the parent
+    private int siblingCount; // number of siblings
+    private int position; // index in siblings of the next leaf
+    private int prefetched; // index in siblings after the last leaf prefetched
+
+    /**
+     * Starts a walk at the leaf whose range holds an entry.
+     */
+    LeafWalk(double key, int row) {
+      page = descend(key, row);
+    }
+
+    /**
+     * Descends to the leaf whose range holds an entry, keeping the leaves after it under its
+     * parent.
+     *
+     * @return the page of the leaf
+     */
+    private int descend(double key, int row) {
+      int node = root;
+      siblingCount = 0;
+      position = 0;
+      prefetched = 0;
+      for (int level = height; level > 1; level--) {
+        ByteBuffer buffer = pages.pin(node);
+        int count = buffer.getInt(COUNT);
+        int c = upperBound(buffer, count, key, row);
+        if (level == 2) {
+          for (int i = c + 1; i <= count; i++) {
+            siblings[siblingCount++] = buffer.getInt(child(i));
+          }
+        }
+        int next = buffer.getInt(child(c));
+        pages.unpin(node, false);
+        node = next;
+      }
+      return node;
+    }
+
+    /**
+     * Moves to the next leaf in the chain.
+     *
+     * @param leaf the current leaf, pinned
+     */
+    void advance(ByteBuffer leaf) {
+      int next = leaf.getInt(NEXT);
+      if (next != NO_PAGE) {
+        if (position < siblingCount) {
+          position++;
+        } else {
+          ByteBuffer nextLeaf = pages.pin(next);
+          double key = nextLeaf.getDouble(HEADER);
+          int row = nextLeaf.getInt(leafRow(0));
+          pages.unpin(next, false);
+          descend(key, row);
+        }
+        if (prefetchLeaves > 0 && prefetched < siblingCount
+            && prefetched - position < prefetchLeaves / 2) {
+          prefetched = pages.prefetch(siblings, Math.max(prefetched, position),
+              Math.min(siblingCount, position + prefetchLeaves));
+        }
+      }
+      page = next;
+    }
+  }
+
+  /**
+   * Visits every entry in ascending key order with a single walk along the leaf chain.
+   *
+   * @param visitor receives the key and the row id of each entry
+   */
+  @Override
+  public void forEachEntry(BiConsumer<Double, Integer> visitor) {
+    LeafWalk walk = new LeafWalk(Double.NEGATIVE_INFINITY, Integer.MIN_VALUE);
+    while (walk.page != NO_PAGE) {
+      int page = walk.page;
+      ByteBuffer leaf = pages.pin(page);
+      int count = leaf.getInt(COUNT);
+      for (int i = 0; i < count; i++) {
+        visitor.accept(leaf.getDouble(HEADER + i * 8), leaf.getInt(leafRow(i)));
+      }
+      walk.advance(leaf);
+      pages.unpin(page, false);
+    }
+  }
+
+  /**
+   * Gets the number of levels of the tree, 1 when the root is a leaf.
+   *
+   * @return the height
+   */
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Counts the internal and leaf nodes of the tree.
+   *
+   * @return the number of nodes
+   */
+  @Override
+  public int getNodeCount() {
+    return pages.getPageCount() - 1;
+  }
+
+  /**
+   * Gets the number of entries of the tree.
+   *
+   * @return the number of entries
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Sets how many leaves a walk along the leaf chain reads ahead.
+   *
+   * @param prefetchLeaves number of leaves, 0 to read every leaf when it is reached
+   */
+  public void setPrefetchLeaves(int prefetchLeaves) {
+    if (prefetchLeaves < 0) {
+      throw new IllegalArgumentException("Invalid prefetch: " + prefetchLeaves);
+    }
+    this.prefetchLeaves = prefetchLeaves;
+  }
+
+  /**
+   * Gets the page store of the tree, e.g. to read the counters of its buffer pool.
+   *
+   * @return the page store
+   */
+  public PageStore getPageStore() {
+    return pages;
+  }
+
+  /**
+   * Writes the modified pages of the tree to their storage.
+   */
+  public void flush() {
+    pages.flush();
+  }
+
+  /**
+   * Writes the modified pages and releases the pages of the tree.
+   */
+  @Override
+  public void close() {
+    pages.close();
+  }
+
+  /**
+   * Describes the shape of the tree; the nodes are not printed since they may not fit in memory.
+   */
+  @Override
+  public String toString() {
+    return "PagedBPTree [entries=" + size + ", height=" + height + ", nodes=" + getNodeCount()
+        + ", leafCapacity=" + leafCapacity + ", pageSize=" + pages.getPageSize() + "]";
+  }
+}
@@ -0,0 +1,197 @@
+package application;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of query results. Results are stored as sets of row ids and the cache is
+ * bounded both by its number of entries and by the memory held by those sets. Entries are kept up
+ * to date when a food item is added instead of being thrown away.
+ */
+public class QueryCache {
+
+  // approximate bytes held by an entry besides its row set
+  private static final long ENTRY_OVERHEAD_BYTES = 64;
+
+  private int maxEntries; // maximum number of cached queries
+
+  private long maxBytes; // maximum number of bytes held by the cached row sets
+
+  private long cachedBytes; // bytes currently held by the cached row sets
+
+  private long hitCount; // number of lookups answered from the cache
+
+  private long missCount; // number of lookups that were not in the cache
+
+  private long evictionCount; // number of entries dropped to stay within bounds
+
+  // cached entries in access order, the eldest entry is the least recently used
+  private LinkedHashMap<String, Entry> entries;
+
+  /**
+   * A cached query together with its result.
+   */
+  private static class Entry {
+    FoodQuery query;
+    BitSet rows;
+    long bytes;
+
+    Entry(FoodQuery query, BitSet rows) {
+      this.query = query;
+      this.rows = rows;
+      this.bytes = weigh(rows);
+    }
+  }
+
+  /**
+   * Public constructor.
+   *
+   * @param maxEntries maximum number of cached queries
+   * @param maxBytes maximum number of bytes held by the cached results
+   */
+  public QueryCache(int maxEntries, long maxBytes) {
+    if (maxEntries < 0 || maxBytes < 0) {
+      throw new IllegalArgumentException("Cache bounds must not be negative");
+    }
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Approximates the memory held by a cached row set.
+   *
+   * @param rows the row set
+   * @return size in bytes
+   */
+  private static long weigh(BitSet rows) {
+    return ENTRY_OVERHEAD_BYTES + rows.size() / 8;
+  }
+
+  /**
+   * Looks up the result of a query.
+   *
+   * @param query the query
+   * @return a copy of the cached row ids, or null if the query is not cached
+   */
+  public synchronized BitSet get(FoodQuery query) {
+    Entry entry = entries.get(query.getKey());
+    if (entry == null) {
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    return (BitSet) entry.rows.clone();
+  }
+
+  /**
+   * Caches the result of a query, evicting the least recently used entries if needed.
+   *
+   * @param query the query
+   * @param rows the row ids matching the query
+   */
+  public synchronized void put(FoodQuery query, BitSet rows) {
+    Entry entry = new Entry(query, (BitSet) rows.clone());
+    if (entry.bytes > maxBytes || maxEntries == 0) {
+      return;
+    }
+    Entry previous = entries.put(query.getKey(), entry);
+    if (previous != null) {
+      cachedBytes -= previous.bytes;
+    }
+    cachedBytes += entry.bytes;
+    evict();
+  }
+
+  /**
+   * Updates every cached result for a newly added row. The row is added to the results of the
+   * queries it matches, all the other results stay valid as they are.
+   *
+   * @param row the row id of the new food item
+   * @param foodItem the new food item
+   */
+  public synchronized void rowAdded(int row, FoodItem foodItem) {
+    for (Entry entry : entries.values()) {
+      if (entry.query.matches(foodItem)) {
+        entry.rows.set(row);
+        cachedBytes -= entry.bytes;
+        entry.bytes = weigh(entry.rows);
+        cachedBytes += entry.bytes;
+      }
+    }
+    evict();
+  }
+
+  /**
+   * Drops all the cached results, e.g. when a new data set is loaded. Counters are kept.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    cachedBytes = 0;
+  }
+
+  /**
+   * Removes least recently used entries until the cache is within its bounds.
+   */
+  private void evict() {
+    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    while ((entries.size() > maxEntries || cachedBytes > maxBytes) && it.hasNext()) {
+      cachedBytes -= it.next().getValue().bytes;
+      it.remove();
+      evictionCount++;
+    }
+  }
+
+  /**
+   * Gets the number of lookups answered from the cache.
+   *
+   * @return the hit count
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Gets the number of lookups that were not in the cache.
+   *
+   * @return the miss count
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Gets the number of entries evicted to stay within bounds.
+   *
+   * @return the eviction count
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Gets the number of cached queries.
+   *
+   * @return the number of entries
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Gets the approximate number of bytes held by the cached results.
+   *
+   * @return size in bytes
+   */
+  public synchronized long getCachedBytes() {
+    return cachedBytes;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "QueryCache [entries=" + entries.size() + ", bytes=" + cachedBytes + ", hits="
+        + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "]";
+  }
+}
@@ -0,0 +1,214 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How FoodData evaluated a query, as reported by FoodData.explain or recorded for the slow query
+ * log while the query ran: the access path chosen by the planner, the rows matched by the name
+ * rule, and for every nutrient rule the index or column read, its estimated and actual
+ * cardinality, the leaves of its index a range search visits, and the rows left after
+ * intersecting it with the rows matched so far. A scan recorded for the slow query log does not
+ * search the indexes, so its rules leave out their actual cardinality and leaves.
+ */
+public class QueryPlan {
+
+  private String query; // key of the query
+  private int rowCount; // number of rows the query ran against
+  private FoodData.AccessPath accessPath; // access path chosen by the planner
+  private double estimatedSelectivity; // sum of the estimated selectivities of the rules
+  private int nameMatches; // rows matching the name rule, all the rows if there is none
+  private long nameNanos; // time spent matching the name rule
+  private List<RuleStep> ruleSteps = new ArrayList<>(); // the nutrient rules, in evaluation order
+  private int resultRows; // rows matching the whole query
+  private long totalNanos; // time spent evaluating the query
+
+  /**
+   * The evaluation of one nutrient rule.
+   */
+  public static class RuleStep {
+    private String rule; // the normalized rule
+    private String source; // the index or the column the rule reads
+    private long estimatedRows; // rows the planner expects the rule alone to match
+    private int actualRows; // rows the rule alone matches in the index, -1 if not searched
+    private int leavesVisited; // leaves a range search of the rule visits, -1 if not searched
+    private int rowsAfter; // rows left after intersecting the rule
+    private long nanos; // time spent on the rule on the chosen access path
+
+    RuleStep(String rule, String source, long estimatedRows, int actualRows, int leavesVisited,
+        int rowsAfter, long nanos) {
+      this.rule = rule;
+      this.source = source;
+      this.estimatedRows = estimatedRows;
+      this.actualRows = actualRows;
+      this.leavesVisited = leavesVisited;
+      this.rowsAfter = rowsAfter;
+      this.nanos = nanos;
+    }
+
+    void setIndexSearch(int actualRows, int leavesVisited) {
+      this.actualRows = actualRows;
+      this.leavesVisited = leavesVisited;
+    }
+
+    /**
+     * Gets the normalized rule.
+     *
+     * @return normalized rule
+     */
+    public String getRule() {
+      return rule;
+    }
+
+    /**
+     * Gets the index or the column the rule reads, e.g. "fat index".
+     *
+     * @return index or column the rule reads
+     */
+    public String getSource() {
+      return source;
+    }
+
+    /**
+     * Gets the number of rows the planner expects the rule alone to match.
+     *
+     * @return number of rows the planner expects the rule alone to match
+     */
+    public long getEstimatedRows() {
+      return estimatedRows;
+    }
+
+    /**
+     * Gets the number of rows the rule alone matches.
+     *
+     * @return number of rows the rule alone matches, -1 if its index was not searched
+     */
+    public int getActualRows() {
+      return actualRows;
+    }
+
+    /**
+     * Gets the number of leaves a range search of the rule visits.
+     *
+     * @return number of leaves a range search of the rule visits, -1 if its index was not searched
+     */
+    public int getLeavesVisited() {
+      return leavesVisited;
+    }
+
+    /**
+     * Gets the number of rows left after intersecting the rule.
+     *
+     * @return number of rows left after intersecting the rule
+     */
+    public int getRowsAfter() {
+      return rowsAfter;
+    }
+
+    /**
+     * Gets the time spent on the rule, in nanoseconds.
+     *
+     * @return time spent on the rule, in nanoseconds
+     */
+    public long getNanos() {
+      return nanos;
+    }
+  }
+
+  QueryPlan(FoodQuery query, int rowCount, FoodData.AccessPath accessPath,
+      double estimatedSelectivity) {
+    this.query = query.getKey();
+    this.rowCount = rowCount;
+    this.accessPath = accessPath;
+    this.estimatedSelectivity = estimatedSelectivity;
+  }
+
+  void setNameStep(int nameMatches, long nameNanos) {
+    this.nameMatches = nameMatches;
+    this.nameNanos = nameNanos;
+  }
+
+  void addRuleStep(RuleStep ruleStep) {
+    ruleSteps.add(ruleStep);
+  }
+
+  void setResult(int resultRows, long totalNanos) {
+    this.resultRows = resultRows;
+    this.totalNanos = totalNanos;
+  }
+
+  /**
+   * Gets the access path chosen by the planner.
+   *
+   * @return access path chosen by the planner
+   */
+  public FoodData.AccessPath getAccessPath() {
+    return accessPath;
+  }
+
+  /**
+   * Gets the steps of the nutrient rules, in evaluation order.
+   *
+   * @return steps of the nutrient rules, in evaluation order
+   */
+  public List<RuleStep> getRuleSteps() {
+    return Collections.unmodifiableList(ruleSteps);
+  }
+
+  /**
+   * Gets the number of rows matching the query.
+   *
+   * @return number of rows matching the query
+   */
+  public int getResultRows() {
+    return resultRows;
+  }
+
+  /**
+   * Gets the time spent evaluating the query, in nanoseconds.
+   *
+   * @return time spent evaluating the query, in nanoseconds
+   */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /**
+   * Describes how the rows of the rules are combined on the chosen access path.
+   *
+   * @return the intersection strategy
+   */
+  public String getIntersectionStrategy() {
+    if (accessPath == FoodData.AccessPath.SCAN) {
+      return "column scan of each rule over the candidate rows, 64 rows per bitmap word,"
+          + " skipping words already empty";
+    }
+    return "range search of each rule in its index, intersected in rule order,"
+        + " stopping once no row is left";
+  }
+
+  /**
+   * Formats the plan, one line per step.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("query %s on %d rows%n", query, rowCount));
+    sb.append(String.format("access path %s, estimated selectivity %.3f over %d rules%n",
+        accessPath, estimatedSelectivity, ruleSteps.size()));
+    sb.append("intersection: ").append(getIntersectionStrategy()).append(System.lineSeparator());
+    sb.append(String.format("name rule: %d rows, %.3f ms%n", nameMatches, nameNanos / 1e6));
+    for (RuleStep step : ruleSteps) {
+      sb.append(String.format("rule %s: %s, estimated %d rows, ", step.rule, step.source,
+          step.estimatedRows));
+      if (step.actualRows >= 0) {
+        sb.append(String.format("actual %d rows, %d leaves, ", step.actualRows,
+            step.leavesVisited));
+      }
+      sb.append(String.format("%d rows left, %.3f ms%n", step.rowsAfter, step.nanos / 1e6));
+    }
+    sb.append(String.format("result: %d rows in %.3f ms%n", resultRows, totalNanos / 1e6));
+    return sb.toString();
+  }
+}
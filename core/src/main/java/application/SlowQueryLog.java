@@ -0,0 +1,118 @@
+package application;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Log of the queries of FoodData that took longer than a threshold to evaluate. Every entry
+ * holds the time the query took and the plan FoodData recorded while running it, see QueryPlan.
+ * Entries are printed as they come and the most recent ones are kept in memory.
+ *
+ * The food data logs to the log given to FoodData.setSlowQueryLog, or, if the system property
+ * foodquery.slowQueryMillis is set, to a log with that threshold printing to the file named by
+ * foodquery.slowQueryLog or else to standard error.
+ */
+public class SlowQueryLog {
+
+  private static final int RECENT_ENTRIES = 100; // entries kept in memory
+
+  private volatile long thresholdNanos; // queries taking at least this long are logged
+  private PrintStream out; // where entries are printed, may be null
+  private ArrayDeque<String> recentEntries = new ArrayDeque<>(); // the latest entries, oldest first
+
+  /**
+   * Creates a log.
+   *
+   * @param thresholdMillis queries taking at least this many milliseconds are logged
+   * @param out where entries are printed, null to only keep them in memory
+   */
+  public SlowQueryLog(long thresholdMillis, PrintStream out) {
+    setThresholdMillis(thresholdMillis);
+    this.out = out;
+  }
+
+  /**
+   * Creates the log configured by the system properties.
+   *
+   * @return the log, or null if foodquery.slowQueryMillis is not set
+   */
+  static SlowQueryLog fromSystemProperties() {
+    Long thresholdMillis = Long.getLong("foodquery.slowQueryMillis");
+    if (thresholdMillis == null) {
+      return null;
+    }
+    String file = System.getProperty("foodquery.slowQueryLog");
+    PrintStream out = System.err;
+    if (file != null) {
+      try {
+        out = new PrintStream(new FileOutputStream(file, true), true);
+      } catch (FileNotFoundException e) {
+        System.out.println(e);
+      }
+    }
+    return new SlowQueryLog(thresholdMillis, out);
+  }
+
+  /**
+   * Gets the threshold.
+   *
+   * @return the threshold in milliseconds
+   */
+  public long getThresholdMillis() {
+    return thresholdNanos / 1_000_000;
+  }
+
+  /**
+   * Sets the threshold.
+   *
+   * @param thresholdMillis queries taking at least this many milliseconds are logged
+   */
+  public void setThresholdMillis(long thresholdMillis) {
+    if (thresholdMillis < 0) {
+      throw new IllegalArgumentException("Invalid threshold: " + thresholdMillis);
+    }
+    thresholdNanos = thresholdMillis * 1_000_000;
+  }
+
+  /**
+   * Tells whether a query taking the given time is logged.
+   *
+   * @param nanos time the query took
+   * @return true if it reached the threshold
+   */
+  boolean isSlow(long nanos) {
+    return nanos >= thresholdNanos;
+  }
+
+  /**
+   * Logs a slow query.
+   *
+   * @param nanos time the query took
+   * @param plan the plan recorded while the query ran
+   */
+  synchronized void log(long nanos, QueryPlan plan) {
+    String entry = String.format("%s slow query, %.3f ms%n%s", LocalDateTime.now(), nanos / 1e6,
+        plan);
+    if (out != null) {
+      out.print(entry);
+    }
+    if (recentEntries.size() == RECENT_ENTRIES) {
+      recentEntries.removeFirst();
+    }
+    recentEntries.addLast(entry);
+  }
+
+  /**
+   * Gets the latest entries.
+   *
+   * @return up to the last 100 entries, oldest first
+   */
+  public synchronized List<String> getRecentEntries() {
+    return new ArrayList<>(recentEntries);
+  }
+}
@@ -0,0 +1,164 @@
+package application;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The column scans of ColumnScan written with the Vector API, comparing as many rows per
+ * instruction as the preferred vector shape of the CPU holds doubles. Each lane of a comparison
+ * selects the bit of its row from a constant vector of bits, and the selected bits of the 64
+ * rows of a bitmap word are OR-ed together, which JDK 17 compiles to vector instructions where
+ * VectorMask.toLong is not.
+ *
+ * This class needs the incubating jdk.incubator.vector module, so it is only loaded by ColumnScan
+ * when the JVM runs with --add-modules jdk.incubator.vector.
+ */
+final class VectorColumnScan {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Long> BIT_SPECIES =
+      VectorSpecies.of(long.class, SPECIES.vectorShape());
+  private static final int LANES = SPECIES.length(); // a power of two dividing 64
+  private static final DoubleVector NO_BITS = DoubleVector.zero(SPECIES);
+
+  // bit of each row of a bitmap word, by group of LANES rows, as doubles to blend with a mask
+  private static final DoubleVector[] ROW_BITS = new DoubleVector[64 / LANES];
+
+  static {
+    long[] bits = new long[LANES];
+    for (int group = 0; group < ROW_BITS.length; group++) {
+      for (int lane = 0; lane < LANES; lane++) {
+        bits[lane] = 1L << (group * LANES + lane);
+      }
+      ROW_BITS[group] = LongVector.fromArray(BIT_SPECIES, bits, 0).reinterpretAsDoubles();
+    }
+  }
+
+  private VectorColumnScan() {}
+
+  /**
+   * Tells whether the CPU compares more than one double per vector, without which the scalar
+   * scans are faster.
+   *
+   * @return true if the vector scans should be used
+   */
+  static boolean isUseful() {
+    return LANES > 1;
+  }
+
+  /**
+   * Clears the bits of the rows whose value does not compare to the threshold.
+   *
+   * @param column the nutrient column
+   * @param rowCount number of rows in the column
+   * @param comparator the comparator of the rule, "<=", ">=" or "=="
+   * @param value the threshold
+   * @param words the bitmap of the candidate rows, 64 rows per word
+   */
+  static void scan(double[] column, int rowCount, String comparator, double value,
+      long[] words) {
+    // one loop per comparator, the operator must be a constant to compile to a vector compare
+    switch (comparator) {
+      case "<=":
+        scanLessOrEqual(column, rowCount, value, words);
+        break;
+      case ">=":
+        scanGreaterOrEqual(column, rowCount, value, words);
+        break;
+      default:
+        scanEqual(column, rowCount, value, words);
+        break;
+    }
+  }
+
+  /**
+   * Clears the bits of the rows whose value is above the threshold.
+   */
+  private static void scanLessOrEqual(double[] column, int rowCount, double value,
+      long[] words) {
+    int fullWords = rowCount >>> 6; // words of 64 rows, the last one may hold fewer
+    for (int block = 0; block < words.length; block++) {
+      if (words[block] == 0) {
+        continue;
+      }
+      int base = block << 6;
+      if (block < fullWords) {
+        LongVector selected = LongVector.zero(BIT_SPECIES);
+        for (int group = 0; group < ROW_BITS.length; group++) {
+          VectorMask<Double> matches = DoubleVector.fromArray(SPECIES, column,
+              base + group * LANES).compare(VectorOperators.LE, value);
+          selected = selected.or(NO_BITS.blend(ROW_BITS[group], matches).reinterpretAsLongs());
+        }
+        words[block] &= selected.reduceLanes(VectorOperators.OR);
+      } else {
+        long mask = 0;
+        for (int i = 0; i < rowCount - base; i++) {
+          mask |= (column[base + i] <= value ? 1L : 0L) << i;
+        }
+        words[block] &= mask;
+      }
+    }
+  }
+
+  /**
+   * Clears the bits of the rows whose value is below the threshold. NaN values are kept, as the
+   * indexes order them above every value.
+   */
+  private static void scanGreaterOrEqual(double[] column, int rowCount, double value,
+      long[] words) {
+    int fullWords = rowCount >>> 6; // words of 64 rows, the last one may hold fewer
+    for (int block = 0; block < words.length; block++) {
+      if (words[block] == 0) {
+        continue;
+      }
+      int base = block << 6;
+      if (block < fullWords) {
+        LongVector selected = LongVector.zero(BIT_SPECIES);
+        for (int group = 0; group < ROW_BITS.length; group++) {
+          VectorMask<Double> below = DoubleVector.fromArray(SPECIES, column,
+              base + group * LANES).compare(VectorOperators.LT, value);
+          selected = selected.or(ROW_BITS[group].blend(NO_BITS, below).reinterpretAsLongs());
+        }
+        words[block] &= selected.reduceLanes(VectorOperators.OR);
+      } else {
+        long mask = 0;
+        for (int i = 0; i < rowCount - base; i++) {
+          mask |= (column[base + i] < value ? 0L : 1L) << i;
+        }
+        words[block] &= mask;
+      }
+    }
+  }
+
+  /**
+   * Clears the bits of the rows whose value differs from the threshold.
+   */
+  private static void scanEqual(double[] column, int rowCount, double value,
+      long[] words) {
+    int fullWords = rowCount >>> 6; // words of 64 rows, the last one may hold fewer
+    for (int block = 0; block < words.length; block++) {
+      if (words[block] == 0) {
+        continue;
+      }
+      int base = block << 6;
+      if (block < fullWords) {
+        LongVector selected = LongVector.zero(BIT_SPECIES);
+        for (int group = 0; group < ROW_BITS.length; group++) {
+          VectorMask<Double> matches = DoubleVector.fromArray(SPECIES, column,
+              base + group * LANES).compare(VectorOperators.EQ, value);
+          selected = selected.or(NO_BITS.blend(ROW_BITS[group], matches).reinterpretAsLongs());
+        }
+        words[block] &= selected.reduceLanes(VectorOperators.OR);
+      } else {
+        long mask = 0;
+        for (int i = 0; i < rowCount - base; i++) {
+          mask |= (column[base + i] == value ? 1L : 0L) << i;
+        }
+        words[block] &= mask;
+      }
+    }
+  }
+}
@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.AbstractMap.SimpleEntry;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -30,6 +31,9 @@ public class FilterRulesForm {
 
   private static final String FILTER_QUERY_VALUE_REGEX = "^(\\d*\\.)?\\d+$";
 
+  // how long to wait after a keystroke in the name field before filtering
+  private static final long LIVE_FILTER_DELAY_MILLIS = 250;
+
   private FoodData foodData; // the food database
 
   private FoodListView foodListView; // the listview showing food items
@@ -62,6 +66,12 @@ public class FilterRulesForm {
 
   private ListView<String> filtersListView; // list view for displaying filters
 
+  private FoodQuery appliedQuery; // the compiled query of the applied filters, null if none
+
+  private FilterQueryExecutor filterQueryExecutor; // runs the filters off the UI thread
+
+  private boolean clearingFields; // true while the query fields are being cleared
+
   /**
    * Creates the needed UI elements for a FilterRulesForm.
    *
@@ -74,6 +84,7 @@ public class FilterRulesForm {
     this.foodListView = foodListView;
     this.availableFoodsLabel = availableFoodsLabel;
     nutrientRulesMap = new HashMap<>();
+    filterQueryExecutor = new FilterQueryExecutor(foodData, Platform::runLater);
 
     filterRulesGridPane = new GridPane();
     VBox filterRulesVBox = new VBox();
@@ -87,6 +98,8 @@ public class FilterRulesForm {
     Label foodItemNameLabel = new Label("Name: ");
     foodItemSearchTextField = new TextField();
     foodItemSearchTextField.setPromptText("Food item(s) to filter");
+    foodItemSearchTextField.textProperty()
+        .addListener((observable, oldText, newText) -> filterAsYouType(newText));
     foodItemNameHBox.getChildren().addAll(foodItemNameLabel, foodItemSearchTextField);
     foodItemNameHBox.setSpacing(1);
 
@@ -190,10 +203,37 @@ public class FilterRulesForm {
    * Clear all filter query fields.
    */
   public void clearAllFilterQueryFields() {
+    clearingFields = true;
     foodItemSearchTextField.setText(null);
     nutrientSelectionComboBox.setValue(null);
     comparatorSelectionComboBox.setValue(null);
     nutrientValueTextField.setText(null);
+    clearingFields = false;
+  }
+
+  /**
+   * Clears all the filters and shows all the available food items again. A filter query that is
+   * still running is dropped.
+   */
+  public void clearFilters() {
+    clearAllFilterQueryFields();
+    clearActiveFiltersListView();
+    nutrientRulesMap.clear();
+    nameRule = null;
+    appliedQuery = null;
+    filterQueryExecutor.cancel();
+    foodListView.setFilteredFoodItemList(null);
+    foodListView.setFiltered(false);
+    updateAvailableFoodsLabel();
+  }
+
+  /**
+   * Shows the number of filtered and total food items in the available foods label.
+   */
+  private void updateAvailableFoodsLabel() {
+    availableFoodsLabel.setText(
+        "Available Foods".concat(" (Count = " + Integer.toString(getFilteredFoodItems().size())
+            + "/" + Integer.toString(foodListView.getFoodItemList().size()) + ")"));
   }
 
   /**
@@ -331,19 +371,7 @@ public class FilterRulesForm {
      */
     @Override
     public void handle(ActionEvent event) {
-      clearAllFilterQueryFields();
-      clearActiveFiltersListView();
-      nutrientRulesMap.clear();
-      nameRule = null;
-      foodListView.setFilteredFoodItemList(null);
-      foodListView.setFiltered(false);
-      foodListView.getView().getItems().clear();
-      for (int i = 0; i < foodListView.getFoodItemList().size(); i++) {
-        foodListView.addFoodItemToFoodListView(foodListView.getFoodItemList().get(i).getName());
-      }
-      availableFoodsLabel.setText(
-          "Available Foods".concat(" (Count = " + Integer.toString(getFilteredFoodItems().size())
-              + "/" + Integer.toString(foodListView.getFoodItemList().size()) + ")"));
+      clearFilters();
     }
   }
 
@@ -371,7 +399,8 @@ public class FilterRulesForm {
       for (Map.Entry<String, Boolean> rule : nutrientRulesMap.entrySet()) {
         rule.setValue(true);
       }
-      applyAllFilters();
+      FoodQuery query = new FoodQuery(getAppliedNameRule(), getAppliedNutrientRules());
+      filterQueryExecutor.submit(query, 0, result -> showFilteredFoodItems(query, result));
       for (int i = 0; i < filtersListView.getItems().size(); i++) {
         String current = filtersListView.getItems().get(i);
         if (!current.endsWith("(Applied)")) {
@@ -382,48 +411,98 @@ public class FilterRulesForm {
   }
 
   /**
-   * Apply all created filters.
+   * Apply all created filters. The name rule and the nutrient rules are run as a single query so
+   * that applying the same filters again is answered from the query cache of the food data.
    */
   public void applyAllFilters() {
-    filteredFoodItems = new ArrayList<>();
-    filteredFoodItems = applyNameFilter();
-    filteredFoodItems.retainAll(applyNutrientFilters());
+    filterQueryExecutor.cancel();
+    FoodQuery query = new FoodQuery(getAppliedNameRule(), getAppliedNutrientRules());
+    showFilteredFoodItems(query, foodData.filter(query));
+  }
+
+  /**
+   * Shows the result of a filter query in the food list view with a single update.
+   *
+   * @param query the query that was run
+   * @param result the food items matching the query
+   */
+  private void showFilteredFoodItems(FoodQuery query, List<FoodItem> result) {
+    appliedQuery = query;
+    filteredFoodItems = result;
     foodListView.setFilteredFoodItemList(filteredFoodItems);
     foodListView.setFiltered(true);
-    availableFoodsLabel.setText(
-        "Available Foods".concat(" (Count = " + Integer.toString(getFilteredFoodItems().size())
-            + "/" + Integer.toString(foodListView.getFoodItemList().size()) + ")"));
+    updateAvailableFoodsLabel();
+  }
+
+  /**
+   * Filters the food list by the text typed in the name field, together with the applied
+   * nutrient rules. The query runs in the background once typing pauses, so every keystroke
+   * neither blocks the UI nor queries the food data.
+   *
+   * @param text the text of the name field
+   */
+  private void filterAsYouType(String text) {
+    if (clearingFields) {
+      return;
+    }
+    String name = text != null && !text.isEmpty() ? text : getAppliedNameRule();
+    List<String> rules = getAppliedNutrientRules();
+    if (name == null && rules.isEmpty()) {
+      filterQueryExecutor.cancel();
+      appliedQuery = null;
+      foodListView.setFilteredFoodItemList(null);
+      foodListView.setFiltered(false);
+      updateAvailableFoodsLabel();
+      return;
+    }
+    FoodQuery query = new FoodQuery(name, rules);
+    filterQueryExecutor.submit(query, LIVE_FILTER_DELAY_MILLIS,
+        result -> showFilteredFoodItems(query, result));
+  }
+
+  /**
+   * Adds a newly created food item to the filtered food list if it matches the applied filters.
+   * Only the new item is tested against the compiled rules, so this costs O(rules) instead of
+   * running the filters again over all the food items.
+   *
+   * @param foodItem the new food item, already added to the food data
+   */
+  public void applyFiltersToNewFoodItem(FoodItem foodItem) {
+    if (appliedQuery == null) {
+      applyAllFilters();
+      return;
+    }
+    if (appliedQuery.matches(foodItem)) {
+      foodListView.addFoodItemToFilteredFoodItemsList(foodItem);
+      foodListView.addFoodItemToFoodListView(foodItem);
+    }
   }
 
   /**
-   * Apply name filter.
+   * Gets the applied name rule.
    *
-   * @return the list
+   * @return the name substring, or null if no name rule is applied
    */
-  private List<FoodItem> applyNameFilter() {
+  private String getAppliedNameRule() {
     if (nameRule != null && nameRule.getValue()) {
-      return foodData.filterByName(nameRule.getKey());
+      return nameRule.getKey();
     } else {
-      return foodData.getAllFoodItems();
+      return null;
     }
   }
 
   /**
-   * Apply nutrient filters.
+   * Gets the applied nutrient rules.
    *
-   * @return the list
+   * @return the list of rules, empty if no nutrient rule is applied
    */
-  private List<FoodItem> applyNutrientFilters() {
-    if (!nutrientRulesMap.isEmpty() && nutrientRulesMap.containsValue(true)) {
-      List<String> ruleList = new ArrayList<>();
-      for (Map.Entry<String, Boolean> rule : nutrientRulesMap.entrySet()) {
-        if (rule.getValue()) {
-          ruleList.add(rule.getKey());
-        }
+  private List<String> getAppliedNutrientRules() {
+    List<String> ruleList = new ArrayList<>();
+    for (Map.Entry<String, Boolean> rule : nutrientRulesMap.entrySet()) {
+      if (rule.getValue()) {
+        ruleList.add(rule.getKey());
       }
-      return foodData.filterByNutrients(ruleList);
-    } else {
-      return foodData.getAllFoodItems();
     }
+    return ruleList;
   }
 }
@@ -0,0 +1,97 @@
+package application;
+
+import java.util.function.ToDoubleFunction;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+
+/**
+ * Represents the view of a FoodItem in a listview. The ListView only creates as many cells as are
+ * visible and reuses them while scrolling, so the nodes of a cell are built once and only their
+ * text is updated.
+ */
+public class FoodItemView extends ListCell<FoodItem> {
+
+  private HBox foodItemHBox = null;
+  private Label nameLabel = null;
+  private Label quantityLabel = null;
+  private ToDoubleFunction<FoodItem> quantities = null; // servings of each food item, if shown
+
+  /**
+   * Creates the nodes of the cell.
+   */
+  public FoodItemView() {
+    this(null);
+  }
+
+  /**
+   * Creates the nodes of a cell that also shows the number of servings of its food item.
+   *
+   * @param quantities gives the servings of a food item, null to show no servings
+   */
+  public FoodItemView(ToDoubleFunction<FoodItem> quantities) {
+    this.quantities = quantities;
+    foodItemHBox = new HBox();
+    nameLabel = new Label();
+    quantityLabel = new Label();
+    Label caloriesLabel = new Label();
+    Label fatLabel = new Label();
+    Label carbLabel = new Label();
+    Label fiberLabel = new Label();
+    Label proteinLabel = new Label();
+
+    foodItemHBox.getChildren().addAll(quantityLabel, nameLabel, caloriesLabel, fatLabel, carbLabel,
+        fiberLabel, proteinLabel);
+    foodItemHBox.setSpacing(5.0);
+  }
+
+  /*
+   * (non-Javadoc) - shows the given food item in this cell
+   *
+   * @see javafx.scene.control.Cell#updateItem(java.lang.Object, boolean)
+   */
+  @Override
+  protected void updateItem(FoodItem foodItem, boolean empty) {
+    super.updateItem(foodItem, empty);
+    if (empty || foodItem == null) {
+      nameLabel.setText(null);
+      quantityLabel.setText(null);
+      setGraphic(null);
+    } else {
+      nameLabel.setText(foodItem.getName());
+      quantityLabel.setText(
+          quantities == null ? null : formatQuantity(quantities.applyAsDouble(foodItem)));
+      setGraphic(foodItemHBox);
+    }
+  }
+
+  /**
+   * Formats a number of servings, e.g. "2 x" or "1.5 x".
+   *
+   * @param quantity number of servings
+   * @return the text of the quantity label
+   */
+  private static String formatQuantity(double quantity) {
+    if (quantity == Math.rint(quantity)) {
+      return (long) quantity + " x";
+    }
+    return String.format("%.2f x", quantity);
+  }
+
+  /**
+   * Returns the node showing the food item.
+   */
+  public Node getNode() {
+    return foodItemHBox;
+  }
+
+  public HBox getFoodItemHBox() {
+    return foodItemHBox;
+  }
+
+  public Label getNameLabel() {
+    return nameLabel;
+  }
+
+}
@@ -0,0 +1,344 @@
+package application;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
+
+/**
+ * Abstracts a list of food items. Supports deletion & selection of items. The list view holds the
+ * FoodItem objects themselves and renders them through recycled FoodItemView cells.
+ */
+public class FoodListView {
+
+  // orders food items by name, ignoring case
+  private static final Comparator<FoodItem> NAME_ORDER =
+      Comparator.comparing(FoodItem::getName, String.CASE_INSENSITIVE_ORDER);
+
+  private ListView<FoodItem> foodItemListView;
+  private List<FoodItem> foodItemList;
+  private List<FoodItem> filteredFoodItemList;
+  private boolean isFiltered;
+
+  /**
+   * Initialize the FoodListView by making an empty listview and arraylist. Allow
+   * selection of multiple items.
+   */
+  public FoodListView() {
+    foodItemListView = new ListView<>();
+    foodItemList = new ArrayList<>();
+
+    foodItemListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+    foodItemListView.setCellFactory(listView -> new FoodItemView());
+  }
+
+  /**
+   * Gets the list of food items that is currently selected in the ListView. Every row of the
+   * ListView holds its FoodItem, so this costs O(selected items) and is not confused by foods
+   * sharing a name.
+   * 
+   * @return - the list of food items that is currently selected
+   */
+
+  public List<FoodItem> getSelection() {
+    return new ArrayList<>(foodItemListView.getSelectionModel().getSelectedItems());
+  }
+
+  /**
+   * Shows the number of servings next to the name of every food item.
+   * 
+   * @param quantities - gives the servings of a food item
+   */
+  public void setQuantities(ToDoubleFunction<FoodItem> quantities) {
+    foodItemListView.setCellFactory(listView -> new FoodItemView(quantities));
+  }
+
+  /**
+   * Redraws the visible rows, e.g. after the quantities they show have changed.
+   */
+  public void refresh() {
+    foodItemListView.refresh();
+  }
+
+  /**
+   * Adds the given food items to both the food list and the list view in one batch.
+   * 
+   * @param foodItems - the food items to add
+   */
+  public void addFoodItems(Collection<FoodItem> foodItems) {
+    foodItemList.addAll(foodItems);
+    addAll(foodItems);
+  }
+
+  /**
+   * Removes the selected rows from the list view and one matching entry per removed row from the
+   * food list. Rows are removed by position, so selecting one of several entries of the same food
+   * removes only that entry.
+   * 
+   * @return - the food items that were removed
+   */
+  public List<FoodItem> removeSelectedFoodItems() {
+    ObservableList<FoodItem> current = foodItemListView.getItems();
+    List<Integer> selectedIndices =
+        new ArrayList<>(foodItemListView.getSelectionModel().getSelectedIndices());
+    selectedIndices.sort(null);
+
+    // keep every row that is not selected, in order
+    List<FoodItem> removed = new ArrayList<>(selectedIndices.size());
+    List<FoodItem> items = new ArrayList<>(current.size());
+    int next = 0;
+    for (int row = 0; row < current.size(); row++) {
+      if (next < selectedIndices.size() && selectedIndices.get(next) == row) {
+        removed.add(current.get(row));
+        next++;
+      } else {
+        items.add(current.get(row));
+      }
+    }
+    foodItemListView.setItems(FXCollections.observableList(items));
+
+    // count how many entries of each food have to go from the food list
+    Map<FoodItem, Integer> toRemove = new IdentityHashMap<>();
+    for (FoodItem foodItem : removed) {
+      toRemove.merge(foodItem, 1, Integer::sum);
+    }
+    List<FoodItem> remaining = new ArrayList<>(foodItemList.size());
+    for (FoodItem foodItem : foodItemList) {
+      Integer count = toRemove.get(foodItem);
+      if (count == null) {
+        remaining.add(foodItem);
+      } else if (count == 1) {
+        toRemove.remove(foodItem);
+      } else {
+        toRemove.put(foodItem, count - 1);
+      }
+    }
+    foodItemList.clear();
+    foodItemList.addAll(remaining);
+    return removed;
+  }
+
+  /**
+   * Adds a new food item to the array list of food items.
+   * 
+   * @param foodItem - new item to add
+   */
+  public void addFoodItemToFoodItemList(FoodItem foodItem) {
+    foodItemList.add(foodItem);
+  }
+
+  /**
+   * Inserts the given food item into the listView at its sorted position.
+   * 
+   * @param foodItem - the food item to show
+   */
+  public void addFoodItemToFoodListView(FoodItem foodItem) {
+    foodItemListView.getItems().add(findSortedPosition(foodItem), foodItem);
+  }
+
+  /**
+   * Replaces the contents of the listView with the given food items. The items are sorted once
+   * and swapped in as a new backing list, so the listView sees a single change.
+   * 
+   * @param foodItems - the food items to show
+   */
+  public void setItems(Collection<FoodItem> foodItems) {
+    List<FoodItem> items = new ArrayList<>(foodItems.size());
+    for (SortKey sortKey : sortByName(foodItems)) {
+      items.add(sortKey.foodItem);
+    }
+    foodItemListView.setItems(FXCollections.observableList(items));
+  }
+
+  /**
+   * Adds all the given food items to the listView. The new items are sorted once and merged with
+   * the already sorted items, then swapped in as a new backing list with a single change.
+   * 
+   * @param foodItems - the food items to add
+   */
+  public void addAll(Collection<FoodItem> foodItems) {
+    if (foodItems.isEmpty()) {
+      return;
+    }
+    ObservableList<FoodItem> current = foodItemListView.getItems();
+    SortKey[] added = sortByName(foodItems);
+    List<FoodItem> items = new ArrayList<>(current.size() + added.length);
+    int i = 0;
+    int j = 0;
+    String currentKey = current.isEmpty() ? null : current.get(0).getName().toLowerCase();
+    while (i < current.size() && j < added.length) {
+      // equal names keep the items already shown first
+      if (currentKey.compareTo(added[j].key) <= 0) {
+        items.add(current.get(i++));
+        currentKey = i < current.size() ? current.get(i).getName().toLowerCase() : null;
+      } else {
+        items.add(added[j++].foodItem);
+      }
+    }
+    items.addAll(current.subList(i, current.size()));
+    for ( ; j < added.length; j++) {
+      items.add(added[j].foodItem);
+    }
+    foodItemListView.setItems(FXCollections.observableList(items));
+  }
+
+  /**
+   * Appends the given food items to the end of the listView with a single change, without sorting
+   * them, e.g. to show the batches of a file as it is parsed before the whole list is sorted once
+   * with setItems.
+   * 
+   * @param foodItems - the food items to append
+   */
+  public void appendItems(Collection<FoodItem> foodItems) {
+    foodItemListView.getItems().addAll(foodItems);
+  }
+
+  /**
+   * Sorts food items by name, ignoring case. The lower-cased name of every item is computed once
+   * instead of on every comparison. The sort is stable, so equal names keep their order.
+   * 
+   * @param foodItems - the food items to sort
+   * @return the food items with their keys, in sorted order
+   */
+  private static SortKey[] sortByName(Collection<FoodItem> foodItems) {
+    SortKey[] sortKeys = new SortKey[foodItems.size()];
+    int i = 0;
+    for (FoodItem foodItem : foodItems) {
+      sortKeys[i++] = new SortKey(foodItem);
+    }
+    Arrays.sort(sortKeys);
+    return sortKeys;
+  }
+
+  /**
+   * A food item paired with its lower-cased name, used as its sort key.
+   */
+  private static class SortKey implements Comparable<SortKey> {
+    String key;
+    FoodItem foodItem;
+
+    SortKey(FoodItem foodItem) {
+      this.key = foodItem.getName().toLowerCase();
+      this.foodItem = foodItem;
+    }
+
+    @Override
+    public int compareTo(SortKey other) {
+      return key.compareTo(other.key);
+    }
+  }
+
+  /**
+   * Finds the position at which the food item keeps the list view sorted by name, ignoring case.
+   * Foods with equal names are kept in insertion order.
+   * 
+   * @param foodItem - the food item to insert
+   * @return index to insert the food at
+   */
+  private int findSortedPosition(FoodItem foodItem) {
+    ObservableList<FoodItem> items = foodItemListView.getItems();
+    int low = 0;
+    int high = items.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (NAME_ORDER.compare(items.get(mid), foodItem) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Clears the list view.
+   */
+  public void reset() {
+    foodItemListView.getItems().clear();
+  }
+
+  /**
+   * Getter for the list view
+   * @return - food list view
+   */
+  public ListView<FoodItem> getView() {
+    return foodItemListView;
+  }
+
+  /**
+   * Getter for the list of food items.
+   * @return - list of food items
+   */
+  public List<FoodItem> getFoodItemList() {
+    return foodItemList;
+  }
+
+  /**
+   * Is the listview currently filtered?
+   * @return true if the listview is filtered, otherwise false
+   */
+  public boolean isFiltered() {
+    return isFiltered;
+  }
+
+  /**
+   * Set the list view to filtered. If true is passed, update the list view
+   * to the contents of the filtered food list. If false is passed,
+   * reset the food list view and add the original items back to the view.
+   * @param isFiltered
+   */
+  public void setFiltered(boolean isFiltered) {
+    this.isFiltered = isFiltered;
+    if (this.isFiltered){
+      this.setItems(filteredFoodItemList);
+    }
+    else {
+      this.setItems(foodItemList);
+    }
+  }
+
+  /**
+   * Getter for the filtered food list
+   * @return - the filtred food list
+   */
+  public List<FoodItem> getFilteredFoodItemList() {
+    return filteredFoodItemList;
+  }
+
+  /**
+   * Setter for the filtered food list.
+   * @param filteredFoodItemList - sets the filtered list to this new list.
+   */
+  public void setFilteredFoodItemList(List<FoodItem> filteredFoodItemList) {
+      this.filteredFoodItemList = filteredFoodItemList;
+  }
+
+  /**
+   * Setter for the food list
+   * @param foodItemList - change the food list to this
+   */
+  public void setFoodItemList(List<FoodItem> foodItemList) {
+    this.foodItemList = foodItemList;
+  }
+
+  /**
+   * Adds the given food item to the filtered list
+   * @param foodItem
+   */
+  public void addFoodItemToFilteredFoodItemsList(FoodItem foodItem) {
+    if (isFiltered) {
+      filteredFoodItemList.add(foodItem);
+    }
+  }
+
+}
@@ -1,5 +1,7 @@
 package application;
 
+import java.io.IOException;
+import java.util.Arrays;
 import javafx.application.Application;
 import javafx.stage.*;
 
@@ -8,6 +10,8 @@ import javafx.stage.*;
  */
 public class Main extends Application {
 
+  private static final String SERVER_FLAG = "--server"; // runs the HTTP server instead of the GUI
+
   /*
    * (non-Javadoc) - Entry point for this application
    * 
@@ -23,11 +27,17 @@ public class Main extends Application {
   }
 
   /**
-   * The main method to launch the application
+   * The main method to launch the application. With the --server flag, the food data is served
+   * over HTTP instead, optionally on the port given after the flag.
    *
    * @param args the arguments
+   * @throws IOException if the server port cannot be bound
    */
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
+    if (args.length > 0 && SERVER_FLAG.equals(args[0])) {
+      FoodQueryServer.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
     launch(args);
   }
 
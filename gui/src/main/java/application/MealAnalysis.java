@@ -0,0 +1,226 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.chart.PieChart;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+/**
+ * Represents the window for analyzing the contents of a meal. Has a table
+ * listing all the food items in the meal and their nutritional information.
+ * Also has a pie chart that shows the caloric breakdown and a table listing
+ * the totals for each nutrient. The totals are the dot product of the servings
+ * of the Meal and the nutrient columns of the food data, and follow the meal
+ * while the window is open.
+ * 
+ * @author: Harrison Clark
+ */
+public class MealAnalysis {
+
+  private PieChart calorieBreakdown;
+  private Meal meal;
+  private Stage mealAnalysisWindow;
+
+  private PieChart.Data fats;
+  private PieChart.Data carbohydrates;
+  private PieChart.Data proteins;
+
+  private Label totalCaloriesLabel;
+  private Label totalFatLabel;
+  private Label totalCarbsLabel;
+  private Label totalFiberLabel;
+  private Label totalProteinLabel;
+
+  private Runnable mealListener = this::showTotals; // keeps the totals in sync with the meal
+
+  private TableView<MealRow> nutrientTable;
+
+  /**
+   * A row of the nutrient table, holding the servings of a food item and the
+   * nutrients they add up to. The values shown by the cells are created once
+   * per row rather than every time a cell is rendered.
+   */
+  private static class MealRow {
+    ObservableValue<String> name;
+    ObservableValue<Double> quantity;
+    Map<Nutrient, ObservableValue<Double>> values = new EnumMap<>(Nutrient.class);
+
+    MealRow(Meal meal, int row) {
+      FoodData foodData = meal.getFoodData();
+      double servings = meal.getQuantity(row);
+      name = new ReadOnlyObjectWrapper<>(foodData.getFoodItem(row).getName());
+      quantity = new ReadOnlyObjectWrapper<>(servings);
+      for (Nutrient nutrient : Nutrient.values()) {
+        values.put(nutrient,
+            new ReadOnlyObjectWrapper<>(servings * foodData.getNutrientColumn(nutrient)[row]));
+      }
+    }
+  }
+
+  /**
+   * Creates a new scene on the given stage. Using the given Meal,
+   * the contructor builds a TableView of all the nutrients, builds a pie chart
+   * of the caloric breakdown of fat, carbs, and protein, and builds a table
+   * with the totals for each nutrient in the meal.
+   * 
+   * @param primaryStage - the stage to attach this window to
+   * @param meal - the meal to analyze
+   */
+
+  public MealAnalysis(Stage primaryStage, Meal meal) {
+    this.meal = meal;
+    mealAnalysisWindow = new Stage();
+    mealAnalysisWindow.initOwner(primaryStage);
+    mealAnalysisWindow.initModality(Modality.WINDOW_MODAL);
+    mealAnalysisWindow.setTitle("Meal Analysis");
+    VBox mainLayoutVBox = new VBox();
+    HBox lowerHBox = new HBox();
+    VBox pieChartVBox = new VBox();
+    VBox totalsVBox = new VBox();
+    VBox totalLabelVBox = new VBox();
+
+
+    boolean canNewWindowOpen = checkMealIsNotEmpty();
+
+    if (canNewWindowOpen) {
+      calorieBreakdown = new PieChart();
+
+      fats = new PieChart.Data("Fat", 0.0);
+      carbohydrates = new PieChart.Data("Carbohydrates", 0.0);
+      proteins = new PieChart.Data("Protein", 0.0);
+
+      calorieBreakdown.getData().add(fats);
+      calorieBreakdown.getData().add(carbohydrates);
+      calorieBreakdown.getData().add(proteins);
+
+      calorieBreakdown.setLegendVisible(false);
+      buildNutrientTable();
+      
+      Label calorieBreakdownLabel = new Label("Calorie Breakdown");
+      Label totalNutrientsLabel = new Label("Total Nutrients");
+
+      totalCaloriesLabel = new Label();
+      totalFatLabel = new Label();
+      totalCarbsLabel = new Label();
+      totalFiberLabel = new Label();
+      totalProteinLabel = new Label();
+      meal.recomputeTotals();
+      showTotals();
+      meal.addListener(mealListener);
+      mealAnalysisWindow.setOnHidden(e -> meal.removeListener(mealListener));
+
+      
+      totalsVBox.getChildren().addAll(totalCaloriesLabel, totalFatLabel, 
+      totalCarbsLabel, totalFiberLabel, totalProteinLabel);
+      totalsVBox.setAlignment(Pos.CENTER_LEFT);
+      totalLabelVBox.getChildren().addAll(totalNutrientsLabel, totalsVBox);
+      totalLabelVBox.setAlignment(Pos.TOP_CENTER);
+
+      mainLayoutVBox.getChildren().add(nutrientTable);
+      pieChartVBox.getChildren().addAll(calorieBreakdownLabel, calorieBreakdown);
+      pieChartVBox.setAlignment(Pos.CENTER);
+      lowerHBox.getChildren().addAll(pieChartVBox, totalLabelVBox);
+      mainLayoutVBox.getChildren().add(lowerHBox);
+      
+
+      
+      mainLayoutVBox.setSpacing(10);
+      Scene pieScene = new Scene(mainLayoutVBox, 800, 600);
+      pieScene.getStylesheets().add("mealAnalysis.css");
+      mealAnalysisWindow.setScene(pieScene);
+      mealAnalysisWindow.show();
+    }
+  }
+
+  /**
+   * Shows the totals of the meal in the pie chart and the total labels.
+   */
+  private void showTotals() {
+    fats.setPieValue(meal.getTotal(Nutrient.FATS) * MealEvaluator.CALORIES_PER_FAT);
+    carbohydrates
+        .setPieValue(meal.getTotal(Nutrient.CARBOHYDRATES) * MealEvaluator.CALORIES_PER_CARB);
+    proteins.setPieValue(meal.getTotal(Nutrient.PROTEINS) * MealEvaluator.CALORIES_PER_PROTEIN);
+
+    totalCaloriesLabel.setText("Total Calories: " + meal.getTotal(Nutrient.CALORIES));
+    totalFatLabel.setText("Total Fat: " + meal.getTotal(Nutrient.FATS));
+    totalCarbsLabel.setText("Total Carbohydrates: " + meal.getTotal(Nutrient.CARBOHYDRATES));
+    totalFiberLabel.setText("Total Fiber: " + meal.getTotal(Nutrient.FIBER));
+    totalProteinLabel.setText("Total Protein: " + meal.getTotal(Nutrient.PROTEINS));
+  }
+
+  private boolean checkMealIsNotEmpty() {
+    boolean canMealAnalysisWindowOpen = true;
+    if (meal.isEmpty()) {
+      canMealAnalysisWindowOpen = false;
+      createAlertDialog(AlertType.ERROR, "Meal list doesn't contain any food items").showAndWait()
+          .filter(e -> e == ButtonType.OK);
+    }
+    return canMealAnalysisWindowOpen;
+  }
+
+  private void buildNutrientTable(){
+    nutrientTable = new TableView<MealRow>();
+    
+    List<MealRow> mealRows = new ArrayList<>(meal.size());
+    for (int row : meal.getRows()) {
+      mealRows.add(new MealRow(meal, row));
+    }
+    mealRows.sort(Comparator.comparing(mealRow -> mealRow.name.getValue(),
+        String.CASE_INSENSITIVE_ORDER));
+    ObservableList<MealRow> obsMealRows = FXCollections.observableList(mealRows);
+    nutrientTable.setItems(obsMealRows);
+
+    TableColumn<MealRow, String> foodNameColumn = new TableColumn<MealRow, String>("Food");
+    foodNameColumn.setCellValueFactory(p -> p.getValue().name);
+
+    TableColumn<MealRow, Double> servingsColumn = new TableColumn<MealRow, Double>("Servings");
+    servingsColumn.setCellValueFactory(p -> p.getValue().quantity);
+
+    TableColumn<MealRow, Double> caloriesColumn = createNutrientColumn("Calories", Nutrient.CALORIES);
+    caloriesColumn.setPrefWidth(caloriesColumn.getText().length()*20);
+
+    TableColumn<MealRow, Double> fatColumn = createNutrientColumn("Fat", Nutrient.FATS);
+    TableColumn<MealRow, Double> carbohydrateCoulumn = createNutrientColumn("Carbohydrates", Nutrient.CARBOHYDRATES);
+    TableColumn<MealRow, Double> fiberColumn = createNutrientColumn("Fiber", Nutrient.FIBER);
+    TableColumn<MealRow, Double> proteinColumn = createNutrientColumn("Protein", Nutrient.PROTEINS);
+
+    nutrientTable.getColumns().addAll(foodNameColumn, servingsColumn, caloriesColumn, fatColumn, carbohydrateCoulumn, fiberColumn, proteinColumn);
+
+    nutrientTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+    
+  }
+
+  private TableColumn<MealRow, Double> createNutrientColumn(String title, Nutrient nutrient) {
+    TableColumn<MealRow, Double> column = new TableColumn<MealRow, Double>(title);
+    column.setCellValueFactory(p -> p.getValue().values.get(nutrient));
+    return column;
+  }
+
+  public PieChart getPieChart() {
+    return calorieBreakdown;
+  }
+
+  private Alert createAlertDialog(AlertType alertType, String message) {
+    return new Alert(alertType, message);
+  }
+}
+
+
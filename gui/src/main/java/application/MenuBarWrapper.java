@@ -0,0 +1,251 @@
+package application;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.scene.Node;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.Menu;
+import javafx.scene.control.MenuBar;
+import javafx.scene.control.MenuItem;
+import javafx.scene.image.ImageView;
+import javafx.scene.control.Alert.AlertType;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+
+/**
+ * Abstracts the menu bar for the GUI. Has operations for loading and saving a csv file of food
+ * items. Files are loaded on a background thread and the food list view is filled in batches as
+ * the file is parsed.
+ */
+public class MenuBarWrapper {
+  private FoodData foodData;
+  private Stage primaryStage;
+  private FoodListView foodListView;
+  private FoodListView mealListView;
+  private Meal meal;
+  private FilterRulesForm filterRulesForm;
+  private Label availableFoodsLabel;
+  private MenuItem loadFileMenuItem;
+  private MenuItem cancelLoadMenuItem;
+  private LoadFoodItemsTask loadTask; // the running load, null if none
+
+  // runs file loads off the JavaFX application thread
+  private ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "food-data-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Constructor for the MenuBarWrapper. Initializes the needed food data and JavaFX objects to
+   * facilitate loading and saving.
+   * 
+   * @param primaryGUI - the gui object this menubar will be part of
+   */
+  public MenuBarWrapper(PrimaryGUI primaryGUI) {
+    this.foodData = primaryGUI.getFoodData();
+    this.primaryStage = primaryGUI.getPrimaryStage();
+    this.foodListView = primaryGUI.getFoodListView();
+    this.mealListView = primaryGUI.getMealListView();
+    this.meal = primaryGUI.getMeal();
+    this.filterRulesForm = primaryGUI.getFilterRulesForm();
+    this.availableFoodsLabel = primaryGUI.getAvailableFoodsLabel();
+  }
+
+  /**
+   * Creates the menu bar node and returns it.
+   */
+  public Node getNode() {
+    MenuBar menuBar = new MenuBar();
+    Menu menu = new Menu("Menu");
+    loadFileMenuItem = new MenuItem("Load File");
+    loadFileMenuItem.setOnAction(new LoadFileMenuItemActionHandler());
+    ImageView loadMenuImage = createMenuItemImage("open-file.png");
+    loadFileMenuItem.setGraphic(loadMenuImage);
+    cancelLoadMenuItem = new MenuItem("Cancel Load");
+    cancelLoadMenuItem.setOnAction(new CancelLoadMenuItemActionHandler());
+    cancelLoadMenuItem.setDisable(true);
+    MenuItem saveFileMenuItem = new MenuItem("Save File");
+    saveFileMenuItem.setOnAction(new SaveFileMenuItemActionHandler());
+    ImageView saveMenuImage = createMenuItemImage("save-file.jpg");
+    saveFileMenuItem.setGraphic(saveMenuImage);
+    menu.getItems().addAll(loadFileMenuItem, cancelLoadMenuItem, saveFileMenuItem);
+    menuBar.getMenus().add(menu);
+    return menuBar;
+  }
+
+  private Alert createAlertDialog(AlertType alertType, String message) {
+    return new Alert(alertType, message);
+  }
+
+  /**
+   * Shows the number of displayed and total food items in the available foods label.
+   */
+  private void updateAvailableFoodsLabel() {
+    List<FoodItem> displayedFoodItems = foodListView.getFilteredFoodItemList() != null
+        ? foodListView.getFilteredFoodItemList() : foodListView.getFoodItemList();
+    availableFoodsLabel.setText("Available Foods".concat(
+        " (Count = " + Integer.toString(displayedFoodItems.size()) + "/"
+            + Integer.toString(foodListView.getFoodItemList().size()) + ")"));
+  }
+
+  private ImageView createMenuItemImage(String imageFileName) {
+    ImageView menuItemImage = new ImageView(imageFileName);
+    menuItemImage.setFitHeight(30);
+    menuItemImage.setFitWidth(30);
+    menuItemImage.setPreserveRatio(true);
+    return menuItemImage;
+  }
+
+  /**
+   * Event handler for loading a csv file. Prompts the user for a csv file and attempts to parse it
+   * into the FoodItems list.
+   */
+  private class LoadFileMenuItemActionHandler implements EventHandler<ActionEvent> {
+
+    @Override
+    public void handle(ActionEvent event) {
+      FileChooser fileChooser = new FileChooser();
+      fileChooser.setTitle("Load From");
+      fileChooser.setInitialDirectory(new File(new File(".").getAbsolutePath()));
+      fileChooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+      File selectedFile = fileChooser.showOpenDialog(primaryStage);
+      if (selectedFile != null) {
+        loadTask = new LoadFoodItemsTask(selectedFile);
+        loadFileMenuItem.setDisable(true);
+        cancelLoadMenuItem.setDisable(false);
+        foodListView.setItems(new ArrayList<>());
+        availableFoodsLabel.setText("Available Foods (Loading 0%)");
+        loadExecutor.execute(loadTask);
+      }
+    }
+  }
+
+  /**
+   * Event handler for cancelling the running load. The food items loaded before stay in place.
+   */
+  private class CancelLoadMenuItemActionHandler implements EventHandler<ActionEvent> {
+
+    @Override
+    public void handle(ActionEvent event) {
+      if (loadTask != null) {
+        loadTask.cancel();
+      }
+    }
+  }
+
+  /**
+   * Loads a csv file into the food data on a background thread. Parsed food items are appended to
+   * the food list view batch by batch in file order, each batch costing only its own size, and the
+   * food list is replaced and sorted once the food data has indexed the whole file.
+   */
+  private class LoadFoodItemsTask extends Task<Boolean> implements FoodData.LoadListener {
+    private File selectedFile;
+
+    LoadFoodItemsTask(File selectedFile) {
+      this.selectedFile = selectedFile;
+    }
+
+    @Override
+    protected Boolean call() {
+      return foodData.loadFoodItems(selectedFile.getPath(), this);
+    }
+
+    /*
+     * (non-Javadoc) - appends a batch of parsed food items to the list view
+     * 
+     * @see application.FoodData.LoadListener#foodItemsParsed(java.util.List, long, long)
+     */
+    @Override
+    public void foodItemsParsed(List<FoodItem> foodItems, long bytesRead, long totalBytes) {
+      updateProgress(bytesRead, totalBytes);
+      long percent = totalBytes > 0 ? bytesRead * 100 / totalBytes : 100;
+      Platform.runLater(() -> {
+        if (!isCancelled()) {
+          foodListView.appendItems(foodItems);
+          availableFoodsLabel.setText("Available Foods (Loading " + percent + "%)");
+        }
+      });
+    }
+
+    @Override
+    protected void succeeded() {
+      finishLoad();
+      if (!getValue()) {
+        restoreFoodListView();
+        createAlertDialog(AlertType.ERROR,
+            "Food items could not be loaded from " + selectedFile.getName()).show();
+        return;
+      }
+      foodListView.getFoodItemList().clear();
+      foodListView.getFoodItemList().addAll(foodData.getAllFoodItems());
+      filterRulesForm.clearFilters();
+      // the meal refers to rows of the previous data set
+      meal.clear();
+      mealListView.getFoodItemList().clear();
+      mealListView.reset();
+      createAlertDialog(AlertType.INFORMATION,
+          "Food items from " + selectedFile.getName() + " loaded successfully").show();
+    }
+
+    @Override
+    protected void cancelled() {
+      finishLoad();
+      restoreFoodListView();
+    }
+
+    @Override
+    protected void failed() {
+      finishLoad();
+      restoreFoodListView();
+      createAlertDialog(AlertType.ERROR,
+          "Food items could not be loaded from " + selectedFile.getName()).show();
+    }
+
+    /**
+     * Re-enables loading once this task is over.
+     */
+    private void finishLoad() {
+      loadTask = null;
+      loadFileMenuItem.setDisable(false);
+      cancelLoadMenuItem.setDisable(true);
+    }
+
+    /**
+     * Shows the food items that were there before the load again.
+     */
+    private void restoreFoodListView() {
+      foodListView.setFiltered(foodListView.isFiltered());
+      updateAvailableFoodsLabel();
+    }
+  }
+
+  /**
+   * Event handler for saving the current foodlist as a csv.
+   */
+  private class SaveFileMenuItemActionHandler implements EventHandler<ActionEvent> {
+
+    @Override
+    public void handle(ActionEvent event) {
+      FileChooser fileChooser = new FileChooser();
+      fileChooser.setTitle("Save To");
+      fileChooser.setInitialDirectory(new File(new File(".").getAbsolutePath()));
+      fileChooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+      File selectedFile = fileChooser.showSaveDialog(primaryStage);
+      if (selectedFile != null) {
+        foodData.saveFoodItems(selectedFile.getAbsolutePath());
+        createAlertDialog(AlertType.INFORMATION,
+            "Available food items saved to " + selectedFile.getName() + " successfully").show();
+      }
+    }
+  }
+
+}
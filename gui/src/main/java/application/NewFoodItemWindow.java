@@ -82,6 +82,19 @@ public class NewFoodItemWindow {
     return sb.toString();
   }
 
+  /**
+   * Creates a random ID that no food item in the food data has yet.
+   *
+   * @return the ID
+   */
+  private String uniqueId() {
+    String id = randomString(24);
+    while (foodData.getById(id) != null) {
+      id = randomString(24);
+    }
+    return id;
+  }
+
   /**
    * Instantiates a new new food item window.
    *
@@ -113,7 +126,7 @@ public class NewFoodItemWindow {
     Label foodIdLabel = createLabelWithBoldFont("ID: ");
     foodId = new TextField();
     foodId.setMaxWidth(100);
-    foodId.setText(randomString(24));
+    foodId.setText(uniqueId());
     foodId.setEditable(false);
     foodId.setDisable(true);
     foodIdHBox.getChildren().addAll(foodIdLabel, foodId);
@@ -220,12 +233,20 @@ public class NewFoodItemWindow {
       }
 
       FoodItem newFoodItem = createNewFoodItem();
-        foodData.addFoodItem(newFoodItem);
+        try {
+          foodData.addFoodItem(newFoodItem);
+        } catch (IllegalArgumentException e) {
+          createAlertDialog(AlertType.ERROR,
+          "A food item with ID " + newFoodItem.getID() + " already exists. Please try again.")
+          .showAndWait().filter(b -> b == ButtonType.OK);
+          foodId.setText(uniqueId());
+          return;
+        }
         foodListView.addFoodItemToFoodItemList(newFoodItem);
         if (!foodListView.isFiltered()) {
-          foodListView.addFoodItemToFoodListView(newFoodItem.getName());
+          foodListView.addFoodItemToFoodListView(newFoodItem);
         } else {
-          filterRulesForm.applyAllFilters();
+          filterRulesForm.applyFiltersToNewFoodItem(newFoodItem);
         }
         availableFoodsLabel.setText(
             "Available Foods".concat(" (Count = " + Integer.toString(getFilteredFoodItems().size())
@@ -2,11 +2,9 @@ package application;
 
 import java.util.ArrayList;
 import java.util.List;
-import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Pos;
-import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
@@ -32,6 +30,8 @@ public class PrimaryGUI {
 
   private FoodListView mealListView; // the listview showing the current meal items
 
+  private Meal meal; // the running nutrient totals of the current meal
+
   private FilterRulesForm filterRulesForm; // A reference to the FilterRulesForm object which
                                            // contains the different filter fields
 
@@ -67,12 +67,13 @@ public class PrimaryGUI {
     this.primaryStage = primaryStage;
     this.foodData = foodData;
     foodListView = new FoodListView();
-    for (FoodItem foodItem : foodData.getAllFoodItems()) {
-      foodListView.addFoodItemToFoodItemList(foodItem);
-      foodListView.addFoodItemToFoodListView(foodItem.getName());
-    }
+    List<FoodItem> foodItems = foodData.getAllFoodItems();
+    foodListView.getFoodItemList().addAll(foodItems);
+    foodListView.setItems(foodItems);
 
+    meal = new Meal(foodData);
     mealListView = new FoodListView();
+    mealListView.setQuantities(meal::getQuantity);
     newFoodButton = new Button("Create New Food");
     newFoodButton.setOnAction(new CreateNewFoodItemHandler());
 
@@ -175,6 +176,24 @@ public class PrimaryGUI {
     return foodListView;
   }
 
+  /**
+   * Getter for the meal list view.
+   *
+   * @return the meal list view
+   */
+  public FoodListView getMealListView() {
+    return mealListView;
+  }
+
+  /**
+   * Getter for the meal.
+   *
+   * @return the meal
+   */
+  public Meal getMeal() {
+    return meal;
+  }
+
   /**
    * Getter for the form of filter rules.
    *
@@ -253,37 +272,13 @@ public class PrimaryGUI {
             "Are you sure you want to remove the selected food(s)");
         alertDialog.showAndWait();
         if (alertDialog.getResult().equals(ButtonType.OK)) {
-          ObservableList<Node> mealItemsToBeRemoved =
-              mealListView.getView().getSelectionModel().getSelectedItems();
-          removeItemsFromMealFoodList(mealItemsToBeRemoved);
-          mealListView.getView().getItems().removeAll(mealItemsToBeRemoved);
-          mealListView.getView().setItems(mealListView.getView().getItems());
+          meal.removeAll(mealListView.removeSelectedFoodItems());
         }
       } else {
         createAlertDialog(AlertType.ERROR, "Meal list doesn't contain any food item").showAndWait()
             .filter(e -> e == ButtonType.OK);
       }
     }
-
-    /**
-     * Removes the items from meal food list.
-     *
-     * @param mealItemsToBeRemoved the meal items to be removed
-     */
-    private void removeItemsFromMealFoodList(ObservableList<Node> mealItemsToBeRemoved) {
-      List<FoodItem> existingMealList = mealListView.getFoodItemList();
-      List<FoodItem> foodItemsToBeRemovedFromMeal = new ArrayList<>();
-      for (int i = 0; i < mealItemsToBeRemoved.size(); i++) {
-        String mealItemToBeRemoved =
-            ((Label) ((HBox) mealItemsToBeRemoved.get(i)).getChildren().get(0)).getText();
-        for (int j = 0; j < existingMealList.size(); j++) {
-          if (mealItemToBeRemoved.equalsIgnoreCase(existingMealList.get(j).getName())) {
-            foodItemsToBeRemovedFromMeal.add(existingMealList.get(j));
-          }
-        }
-      }
-      mealListView.getFoodItemList().removeAll(foodItemsToBeRemovedFromMeal);
-    }
   }
 
   /**
@@ -299,10 +294,18 @@ public class PrimaryGUI {
     @Override
     public void handle(ActionEvent event) {
       if (!foodListView.getView().getSelectionModel().getSelectedItems().isEmpty()) {
-        for (FoodItem foodItem : foodListView.getSelection()) {
-          mealListView.addFoodItemToFoodItemList(foodItem);
-          mealListView.addFoodItemToFoodListView(foodItem.getName());
+        List<FoodItem> selectedFoodItems = foodListView.getSelection();
+        // foods already in the meal only get another serving, not another row
+        List<FoodItem> newFoodItems = new ArrayList<>();
+        for (FoodItem foodItem : selectedFoodItems) {
+          if (!meal.contains(foodItem)) {
+            newFoodItems.add(foodItem);
+          }
         }
+        meal.addAll(selectedFoodItems);
+        newFoodItems.removeIf(foodItem -> !meal.contains(foodItem));
+        mealListView.addFoodItems(newFoodItems);
+        mealListView.refresh();
         foodListView.getView().getSelectionModel().clearSelection();
       } else {
         createAlertDialog(AlertType.ERROR, "No food items selected to be added to the meal list")
@@ -342,7 +345,7 @@ public class PrimaryGUI {
      */
     @Override
     public void handle(ActionEvent event) {
-      new MealAnalysis(primaryStage, mealListView);
+      new MealAnalysis(primaryStage, meal);
     }
 
   }